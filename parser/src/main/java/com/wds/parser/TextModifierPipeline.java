@@ -0,0 +1,182 @@
+package com.wds.parser;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * A chain of TextModifier operations compiled once and applied as one function, giving the same result as calling
+ * the TextModifier methods one after the other.
+ * <p>
+ * Patterns are compiled when the pipeline is built. Most TextModifier methods end with fixMultiSpaces; between
+ * operations that do not look at spaces that pass is deferred, so a chain collapses spaces once at the end
+ * instead of after every step, and a removeBraces right before it is folded into the same pass over the string.
+ * <p>
+ * A pipeline is immutable and can be shared between threads.
+ */
+public final class TextModifierPipeline implements UnaryOperator<String> {
+
+    private static final Pattern SINGLE_QUOTED = Pattern.compile("'([^\\s]+)'");
+    private static final Pattern DOUBLE_QUOTED = Pattern.compile("\"(.*)\"");
+
+    private final UnaryOperator<String>[] steps;
+
+    @SuppressWarnings("unchecked")
+    private TextModifierPipeline(List<UnaryOperator<String>> steps) {
+        this.steps = (UnaryOperator<String>[]) steps.toArray(new UnaryOperator<?>[0]);
+    }
+
+    @Override
+    public String apply(String s) {
+        for (UnaryOperator<String> step : steps) {
+            s = step.apply(s);
+        }
+        return s;
+    }
+
+    /**
+     * fixMultiSpaces in one pass, replacing braces with spaces on the way when asked to
+     */
+    private static String collapseSpaces(String s, boolean bracesToSpace) {
+        StringBuilder result = new StringBuilder(s.length());
+        boolean lastWasSpace = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (bracesToSpace && isBrace(c)) {
+                c = ' ';
+            }
+            if (c == ' ') {
+                if (!lastWasSpace) {
+                    result.append(c);
+                }
+                lastWasSpace = true;
+            } else {
+                result.append(c);
+                lastWasSpace = false;
+            }
+        }
+        int from = 0;
+        int to = result.length();
+        while (from < to && result.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && result.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return result.substring(from, to);
+    }
+
+    private static String bracesToSpace(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (isBrace(chars[i])) {
+                chars[i] = ' ';
+            }
+        }
+        return new String(chars);
+    }
+
+    private static boolean isBrace(char c) {
+        return c == '(' || c == ')' || c == '[' || c == ']' || c == '{' || c == '}';
+    }
+
+    public static class Builder {
+
+        private final List<UnaryOperator<String>> steps = new ArrayList<>();
+        // the chain would have collapsed spaces by now, it has not been done yet
+        private boolean spacesPending;
+        // braces are to be turned into spaces, not done yet; only ever set along with spacesPending
+        private boolean bracesPending;
+
+        /**
+         * as TextModifier.removeChars
+         * @param regex
+         */
+        public Builder removeChars(String regex) {
+            Pattern pattern = Pattern.compile(regex);
+            // the regex may look at spaces, so it must see them collapsed
+            flush();
+            steps.add(s -> pattern.matcher(s).replaceAll(StringUtils.EMPTY));
+            spacesPending = true;
+            return this;
+        }
+
+        /**
+         * as TextModifier.removeSurroundingQuotes
+         */
+        public Builder removeSurroundingQuotes() {
+            flushBraces();
+            steps.add(s -> DOUBLE_QUOTED.matcher(SINGLE_QUOTED.matcher(s).replaceAll("$1")).replaceAll("$1"));
+            spacesPending = true;
+            return this;
+        }
+
+        /**
+         * as TextModifier.removeBraces
+         */
+        public Builder removeBraces() {
+            bracesPending = true;
+            spacesPending = true;
+            return this;
+        }
+
+        /**
+         * as TextModifier.removeAccentsAndConvertToUpper
+         */
+        public Builder removeAccentsAndConvertToUpper() {
+            flushBraces();
+            steps.add(s -> StringUtils.isEmpty(s) ? s : StringUtils.stripAccents(s).toUpperCase());
+            spacesPending = true;
+            return this;
+        }
+
+        /**
+         * as TextModifier.fixMultiSpaces
+         */
+        public Builder fixMultiSpaces() {
+            spacesPending = true;
+            return this;
+        }
+
+        /**
+         * any other step, e.g. a TextModifier method; it sees the text exactly as the chain would give it
+         * @param step
+         */
+        public Builder then(UnaryOperator<String> step) {
+            flush();
+            steps.add(step);
+            return this;
+        }
+
+        public TextModifierPipeline build() {
+            List<UnaryOperator<String>> compiled = new ArrayList<>(steps);
+            if (spacesPending) {
+                compiled.add(collapseSpacesStep());
+            }
+            return new TextModifierPipeline(compiled);
+        }
+
+        private void flushBraces() {
+            if (bracesPending) {
+                steps.add(TextModifierPipeline::bracesToSpace);
+                bracesPending = false;
+            }
+        }
+
+        private void flush() {
+            if (spacesPending) {
+                steps.add(collapseSpacesStep());
+            }
+            spacesPending = false;
+            bracesPending = false;
+        }
+
+        private UnaryOperator<String> collapseSpacesStep() {
+            boolean braces = bracesPending;
+            return s -> collapseSpaces(s, braces);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.wds.parser;
+
+import com.wds.util.LruCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Applies a normalisation - a TextModifierPipeline or any TextModifier / TextParser function - to many strings at once.
+ * <p>
+ * Batches are split into chunks that run in parallel on a fork join pool, and results keep the input order.
+ * Results are memoised in an LruCache, so a string that keeps coming back is normalised once; hits take no lock.
+ * The normalisation must be thread safe and depend on its input only.
+ */
+public final class TextNormalizer {
+
+    private final UnaryOperator<String> normalization;
+    private final LruCache<String, String> memo;
+    private final ForkJoinPool pool;
+
+    public TextNormalizer(UnaryOperator<String> normalization) {
+        this(normalization, 100_000, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param normalization
+     * @param memoSize - the most distinct inputs remembered
+     * @param pool - runs the parallel chunks
+     */
+    public TextNormalizer(UnaryOperator<String> normalization, int memoSize, ForkJoinPool pool) {
+        if (memoSize < 1) {
+            throw new IllegalArgumentException("memoSize must be at least 1, was " + memoSize);
+        }
+        this.normalization = normalization;
+        this.memo = new LruCache<>(memoSize);
+        this.pool = pool;
+    }
+
+    public String normalize(String s) {
+        if (s == null) {
+            return normalization.apply(null);
+        }
+        // concurrent misses on the same input may each compute it
+        return memo.get(s, normalization);
+    }
+
+    public List<String> normalizeAll(List<String> values) {
+        return normalizeAll(values.stream());
+    }
+
+    /**
+     * normalise a finite stream in parallel
+     * @param values
+     * @return the results in stream order
+     */
+    public List<String> normalizeAll(Stream<String> values) {
+        return pool.submit(() -> values.parallel()
+                .map(this::normalize)
+                .collect(Collectors.toList())).join();
+    }
+
+    /**
+     * normalise a stream in parallel without collecting it, for inputs too large to hold
+     * @param values
+     * @param sink - called with the results one at a time, in stream order
+     */
+    public void normalizeAll(Stream<String> values, Consumer<? super String> sink) {
+        pool.submit(() -> values.parallel()
+                .map(this::normalize)
+                .forEachOrdered(sink)).join();
+    }
+
+    /**
+     * normalise the lines of a UTF-8 file
+     * @param file
+     * @return the results in line order
+     * @throws IOException
+     */
+    public List<String> normalizeLines(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            return normalizeAll(lines);
+        }
+    }
+
+    /**
+     * normalise the lines of a UTF-8 file without holding them
+     * @param file
+     * @param sink - called with the results one at a time, in line order
+     * @throws IOException
+     */
+    public void normalizeLines(Path file, Consumer<? super String> sink) throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            normalizeAll(lines, sink);
+        }
+    }
+
+    /**
+     * @return the number of inputs whose result is remembered
+     */
+    public int memoized() {
+        return memo.size();
+    }
+}
@@ -1,7 +1,10 @@
 package com.wds.parser;
 
+import com.wds.util.DictionaryMatcher;
+import com.wds.util.LruCache;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
@@ -12,16 +15,34 @@ import static java.util.Arrays.asList;
 
 public final class TextParser {
 
+    // word lists compiled into matchers, keyed by list content
+    private static final LruCache<List<String>, DictionaryMatcher> MATCHERS = new LruCache<>(64, List::copyOf);
+    // compiled word regexes, keyed by list content
+    private static final LruCache<List<String>, WordMatcher> WORD_MATCHERS = new LruCache<>(64, List::copyOf);
+
     private TextParser() {}
 
     /**
      * return true if s contains any value from the list
+     * the list is compiled into a cached DictionaryMatcher so s is scanned once whatever the number of values,
+     * but every call still hashes the list to find it - on a hot path use containsAny(String, DictionaryMatcher)
      * @param s
      * @param values
      * @return
      */
     public static boolean containsAny(String s, List<String> values) {
-        return values.stream().parallel().anyMatch(s::contains);
+        return matcherOf(values).containsAny(s);
+    }
+
+    /**
+     * return true if s contains any value of a matcher compiled once with DictionaryMatcher.of;
+     * the hot path API, as no list is hashed or looked up per call
+     * @param s
+     * @param values
+     * @return
+     */
+    public static boolean containsAny(String s, DictionaryMatcher values) {
+        return values.containsAny(s);
     }
 
     /**
@@ -31,8 +52,7 @@ public final class TextParser {
      * @return
      */
     public static boolean containsAnyWord(String s, List<String> values) {
-        String regex = getContainsAnyRegex(values);
-        return s.matches(regex);
+        return wordMatcherOf(values).containsAnyWord(s);
     }
 
     /**
@@ -52,13 +72,15 @@ public final class TextParser {
      * @return
      */
     public static boolean equalsAnyWord(String s, List<String> values) {
-        String regex = getEqualsAnyRegex(values);
-        return s.matches(regex);
+        return wordMatcherOf(values).equalsAnyWord(s);
     }
 
     public static boolean containsAnyWordRegex(String s, List<String> values) {
-        String valuesRegex = values.stream().collect(Collectors.joining("|"));
-        return s.matches("(^|.*)("+valuesRegex+")(.*|$)");
+        return wordMatcherOf(values).containsAnyWordRegex(s);
+    }
+
+    private static WordMatcher wordMatcherOf(List<String> values) {
+        return WORD_MATCHERS.get(values, WordMatcher::of);
     }
 
     /**
@@ -77,8 +99,8 @@ public final class TextParser {
      * @return
      */
     public static String getEqualsAnyRegex(List<String> values) {
-        StringBuffer buff = new StringBuffer("\\b(");
-        values.forEach(m -> buff.append(m + "|"));
+        StringBuilder buff = new StringBuilder("\\b(");
+        values.forEach(m -> buff.append(m).append('|'));
         buff.setLength(buff.length() - 1);
         buff.append(")\\b");
         return buff.toString();
@@ -107,7 +129,7 @@ public final class TextParser {
      * @return
      */
     public static boolean anyContains(List<String> list, String s) {
-        return list.stream().parallel().anyMatch(l -> l.contains(s));
+        return list.stream().anyMatch(l -> l.contains(s));
     }
 
     /**
@@ -116,7 +138,42 @@ public final class TextParser {
      * @return
      */
     public static List<String> breakBySpace(String s) {
-        return asList(s.split("\\s+"));
+        return firstTokens(s, Integer.MAX_VALUE);
+    }
+
+    /**
+     * up to max tokens of s as split("\\s+") gives them, including its leading empty token when s starts with a space
+     */
+    private static List<String> firstTokens(String s, int max) {
+        List<String> tokens = new ArrayList<>();
+        if (s.isEmpty()) {
+            if (max > 0) {
+                tokens.add(s);
+            }
+            return tokens;
+        }
+        WordScanner words = new WordScanner(s);
+        while (tokens.size() < max && words.next()) {
+            if (tokens.isEmpty() && words.start() > 0) {
+                tokens.add(StringUtils.EMPTY);
+                if (tokens.size() == max) {
+                    break;
+                }
+            }
+            tokens.add(words.word());
+        }
+        return tokens;
+    }
+
+    /**
+     * the number of tokens split("\\s+") gives for s, without splitting
+     */
+    private static int countTokens(String s) {
+        if (s.isEmpty()) {
+            return 1;
+        }
+        int words = new WordScanner(s).count();
+        return words > 0 && WordScanner.isSpace(s.charAt(0)) ? words + 1 : words;
     }
 
     /**
@@ -132,12 +189,17 @@ public final class TextParser {
 
     /**
      * find the first token from a list of tokens contained by s
+     * on a hot path call findFirst on a DictionaryMatcher compiled once instead
      * @param s
      * @param values
      * @return
      */
     public static Optional<String> findFirstTokenContained(String s, List<String> values) {
-        return values.stream().filter(v -> s.contains(v)).findFirst();
+        return matcherOf(values).findFirst(s);
+    }
+
+    private static DictionaryMatcher matcherOf(List<String> values) {
+        return MATCHERS.get(values, DictionaryMatcher::of);
     }
 
     /**
@@ -176,8 +238,8 @@ public final class TextParser {
      */
     public static Optional<String> getLastWord(String s) {
         if(StringUtils.isBlank(s)) return Optional.empty();
-        List<String> words = breakBySpace(s.trim());
-        return Optional.of(words.get(words.size()-1));
+        WordScanner words = trimmedWords(s);
+        return Optional.of(words.last() ? words.word() : StringUtils.EMPTY);
     }
 
     /**
@@ -187,9 +249,37 @@ public final class TextParser {
      */
     public static Optional<String> getFirstWord(String s) {
         if(StringUtils.isBlank(s)) return Optional.empty();
-        return breakBySpace(s.trim()).stream()
-                .filter(StringUtils::isNotBlank)
-                .findFirst();
+        WordScanner words = trimmedWords(s);
+        while (words.next()) {
+            if (!isBlank(s, words.start(), words.end())) {
+                return Optional.of(words.word());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * the words of s.trim(), without trimming
+     */
+    private static WordScanner trimmedWords(String s) {
+        int from = 0;
+        int to = s.length();
+        while (from < to && s.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return new WordScanner().reset(s, from, to);
+    }
+
+    private static boolean isBlank(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -204,7 +294,7 @@ public final class TextParser {
     /**
      * count the words separated by spaces in a string s
      */
-    public static Function<String, Integer> wordCounter = (String s) -> s.split("\\s+").length;
+    public static Function<String, Integer> wordCounter = TextParser::countTokens;
 
     /**
      * join all the strings from list using space into one string
@@ -231,7 +321,25 @@ public final class TextParser {
      * @return
      */
     public static String firstWordsAsString(String s, Integer count) {
-        return count >= countWords(s) ? s : String.join(StringUtils.SPACE, firstWordsAsList(s, count));
+        if (StringUtils.isBlank(s) || count < 0) {
+            return count >= countWords(s) ? s : String.join(StringUtils.SPACE, firstWordsAsList(s, count));
+        }
+        // one pass: find where the count-th token ends, and whether the tokens before it are single spaced,
+        // in which case joining them back gives a prefix of s
+        WordScanner words = new WordScanner(s);
+        int tokens = WordScanner.isSpace(s.charAt(0)) ? 1 : 0;
+        int end = 0;
+        boolean singleSpaced = true;
+        while (tokens < count && words.next()) {
+            int gap = words.start() - end;
+            singleSpaced &= gap == 0 ? tokens == 0 : gap == 1 && s.charAt(end) == ' ';
+            end = words.end();
+            tokens++;
+        }
+        if (tokens < count || !words.next()) {
+            return s;
+        }
+        return singleSpaced ? s.substring(0, end) : String.join(StringUtils.SPACE, firstWordsAsList(s, count));
     }
 
     /**
@@ -241,7 +349,10 @@ public final class TextParser {
      * @return
      */
     public static List<String> firstWordsAsList(String s, int count) {
-        List<String> list = breakBySpace(s);
-        return count >= list.size() ? list : list.subList(0, count);
+        if (count < 0) {
+            List<String> list = breakBySpace(s);
+            return list.subList(0, count);
+        }
+        return firstTokens(s, count);
     }
 }
@@ -0,0 +1,68 @@
+package com.wds.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static com.wds.parser.TextParser.getEqualsAnyRegex;
+
+/**
+ * the word matching of TextParser with its regexes compiled once for a list of values.
+ * build one per word list and reuse it, it is immutable and thread safe
+ */
+public final class WordMatcher {
+
+    private final List<String> values;
+    // each regex is compiled on first use, so a list one of them cannot compile still serves the others
+    private volatile Pattern containsAnyWord;
+    private volatile Pattern equalsAnyWord;
+    private volatile Pattern containsAnyWordRegex;
+
+    private WordMatcher(List<String> values) {
+        this.values = new ArrayList<>(values);
+    }
+
+    public static WordMatcher of(List<String> values) {
+        return new WordMatcher(values);
+    }
+
+    /**
+     * same as TextParser.containsAnyWord
+     * @param s
+     * @return
+     */
+    public boolean containsAnyWord(String s) {
+        Pattern pattern = containsAnyWord;
+        if (pattern == null) {
+            // the regex of the deprecated TextParser.getContainsAnyRegex, which containsAnyWord keeps matching
+            containsAnyWord = pattern = Pattern.compile("^.*?" + getEqualsAnyRegex(values) + ".*$");
+        }
+        return pattern.matcher(s).matches();
+    }
+
+    /**
+     * same as TextParser.equalsAnyWord
+     * @param s
+     * @return
+     */
+    public boolean equalsAnyWord(String s) {
+        Pattern pattern = equalsAnyWord;
+        if (pattern == null) {
+            equalsAnyWord = pattern = Pattern.compile(getEqualsAnyRegex(values));
+        }
+        return pattern.matcher(s).matches();
+    }
+
+    /**
+     * same as TextParser.containsAnyWordRegex
+     * @param s
+     * @return
+     */
+    public boolean containsAnyWordRegex(String s) {
+        Pattern pattern = containsAnyWordRegex;
+        if (pattern == null) {
+            containsAnyWordRegex = pattern = Pattern.compile("(^|.*)(" + String.join("|", values) + ")(.*|$)");
+        }
+        return pattern.matcher(s).matches();
+    }
+}
@@ -0,0 +1,129 @@
+package com.wds.parser;
+
+/**
+ * cursor over the words of a CharSequence, a word being a run of characters other than the whitespace of the
+ * regex \s - space, tab, new line, vertical tab, form feed and carriage return.
+ * the current word is an offset range, so walking words allocates nothing; reset() reuses a scanner for another text.
+ * not thread safe
+ */
+public final class WordScanner {
+
+    private CharSequence text;
+    private int position;
+    private int limit;
+    private int start = -1;
+    private int end = -1;
+
+    public WordScanner() {
+    }
+
+    public WordScanner(CharSequence text) {
+        reset(text);
+    }
+
+    public WordScanner reset(CharSequence text) {
+        return reset(text, 0, text.length());
+    }
+
+    /**
+     * scan only the words between from and to
+     * @param text
+     * @param from - inclusive
+     * @param to - exclusive
+     * @return
+     */
+    public WordScanner reset(CharSequence text, int from, int to) {
+        this.text = text;
+        this.position = from;
+        this.limit = to;
+        this.start = -1;
+        this.end = -1;
+        return this;
+    }
+
+    /**
+     * move to the next word
+     * @return false when there are no more words
+     */
+    public boolean next() {
+        while (position < limit && isSpace(text.charAt(position))) {
+            position++;
+        }
+        if (position >= limit) {
+            return false;
+        }
+        start = position;
+        while (position < limit && !isSpace(text.charAt(position))) {
+            position++;
+        }
+        end = position;
+        return true;
+    }
+
+    /**
+     * @return offset of the first character of the current word
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return offset after the last character of the current word
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * @return the current word as a new string
+     */
+    public String word() {
+        return text.subSequence(start, end).toString();
+    }
+
+    /**
+     * count the words left, moving to the end
+     * @return
+     */
+    public int count() {
+        int count = 0;
+        while (next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * move to the last word
+     * @return false if there were no words left
+     */
+    public boolean last() {
+        int lastStart = -1;
+        int lastEnd = -1;
+        while (next()) {
+            lastStart = start;
+            lastEnd = end;
+        }
+        start = lastStart;
+        end = lastEnd;
+        return lastStart >= 0;
+    }
+
+    /**
+     * move count words on
+     * @param count
+     * @return the end offset of the last of those words, -1 if there were fewer words left
+     */
+    public int cutAfter(int count) {
+        for (int i = 0; i < count; i++) {
+            if (!next()) {
+                return -1;
+            }
+        }
+        return count == 0 ? position : end;
+    }
+
+    public static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
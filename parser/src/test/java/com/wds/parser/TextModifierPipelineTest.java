@@ -0,0 +1,87 @@
+package com.wds.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextModifierPipelineTest {
+
+    @Test
+    void cleansLikeTheChainedCalls() {
+        TextModifierPipeline pipeline = new TextModifierPipeline.Builder()
+                .removeChars("[!?]")
+                .removeSurroundingQuotes()
+                .removeBraces()
+                .removeAccentsAndConvertToUpper()
+                .build();
+
+        assertEquals("BEYONCE LIVE 2003", pipeline.apply("  \"Beyoncé!\"   (live)  [2003] "));
+        assertEquals("WE'VE GOT A FUZZBOX", pipeline.apply("we've  got a 'fuzzbox'?"));
+    }
+
+    @Test
+    void matchesTheChainedCallsOnRandomText() {
+        char[] alphabet = {'a', 'B', ' ', ' ', ' ', '\t', '\'', '"', '(', ']', '{', 'é', '!', '\u0001'};
+        List<UnaryOperator<String>> chain = List.of(
+                s -> TextModifier.removeChars(s, "[!a]"),
+                TextModifier::removeSurroundingQuotes,
+                TextModifier::removeBraces,
+                TextModifier::removeAccentsAndConvertToUpper,
+                s -> TextModifier.removeChars(s, "B "),
+                TextModifier::removeBraces,
+                TextModifier::removeSurroundingQuotes);
+        TextModifierPipeline pipeline = new TextModifierPipeline.Builder()
+                .removeChars("[!a]")
+                .removeSurroundingQuotes()
+                .removeBraces()
+                .removeAccentsAndConvertToUpper()
+                .removeChars("B ")
+                .removeBraces()
+                .removeSurroundingQuotes()
+                .build();
+
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder s = new StringBuilder();
+            for (int n = random.nextInt(14); n > 0; n--) {
+                s.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String expected = s.toString();
+            for (UnaryOperator<String> step : chain) {
+                expected = step.apply(expected);
+            }
+            assertEquals(expected, pipeline.apply(s.toString()), s.toString());
+        }
+    }
+
+    @Test
+    void customStepsSeeTheChainedResult() {
+        TextModifierPipeline pipeline = new TextModifierPipeline.Builder()
+                .removeBraces()
+                .then(s -> s.replace(" ", "_"))
+                .fixMultiSpaces()
+                .build();
+
+        assertEquals("A_B_C", pipeline.apply("A (B)   C"));
+    }
+
+    @Test
+    void canBeSharedBetweenThreads() {
+        TextModifierPipeline pipeline = new TextModifierPipeline.Builder()
+                .removeSurroundingQuotes()
+                .removeAccentsAndConvertToUpper()
+                .build();
+        var results = ConcurrentHashMap.<String>newKeySet();
+
+        IntStream.range(0, 10_000).parallel().forEach(i -> results.add(pipeline.apply("'café'  " + (i % 3))));
+
+        assertEquals(3, results.size());
+        assertTrue(results.contains("CAFE 0"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.wds.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextNormalizerTest {
+
+    private final TextModifierPipeline pipeline = new TextModifierPipeline.Builder()
+            .removeBraces()
+            .removeAccentsAndConvertToUpper()
+            .build();
+
+    @Test
+    void normalizesInParallelAndKeepsOrder() {
+        List<String> titles = IntStream.range(0, 10_000).mapToObj(i -> "título (" + i + ")").collect(Collectors.toList());
+
+        List<String> normalized = new TextNormalizer(pipeline).normalizeAll(titles);
+
+        assertEquals(10_000, normalized.size());
+        assertEquals("TITULO 0", normalized.get(0));
+        assertEquals("TITULO 9999", normalized.get(9_999));
+    }
+
+    @Test
+    void repeatedInputsAreNormalizedOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TextNormalizer normalizer = new TextNormalizer(s -> {
+                calls.incrementAndGet();
+                return pipeline.apply(s);
+            }, 100, pool);
+            List<String> titles = IntStream.range(0, 10_000).mapToObj(i -> "[live] " + (i % 10)).collect(Collectors.toList());
+
+            List<String> normalized = normalizer.normalizeAll(titles.stream());
+
+            assertEquals("LIVE 3", normalized.get(13));
+            assertEquals(10, normalizer.memoized());
+            // concurrent misses on the same title may each compute it
+            assertTrue(calls.get() < 100);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void aFullMemoForgetsTheLeastRecentlyUsedInput() {
+        AtomicInteger calls = new AtomicInteger();
+        TextNormalizer normalizer = new TextNormalizer(s -> {
+            calls.incrementAndGet();
+            return pipeline.apply(s);
+        }, 5, ForkJoinPool.commonPool());
+
+        IntStream.range(0, 5).mapToObj(i -> "título " + i).forEach(normalizer::normalize);
+        normalizer.normalize("título 0");
+        normalizer.normalize("título 5");
+        assertEquals(6, calls.get());
+
+        assertEquals("TITULO 0", normalizer.normalize("título 0"));
+        assertEquals(6, calls.get());
+        assertEquals("TITULO 1", normalizer.normalize("título 1"));
+        assertEquals(7, calls.get());
+        assertEquals(5, normalizer.memoized());
+    }
+
+    @Test
+    void normalizesTheLinesOfAFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("titles.txt");
+        Files.write(file, List.of("café  (remix)", "{b-side}", "naïve"));
+        List<String> streamed = new ArrayList<>();
+
+        TextNormalizer normalizer = new TextNormalizer(pipeline);
+        List<String> normalized = normalizer.normalizeLines(file);
+        normalizer.normalizeLines(file, streamed::add);
+
+        assertEquals(List.of("CAFE REMIX", "B-SIDE", "NAIVE"), normalized);
+        assertEquals(normalized, streamed);
+    }
+}
@@ -1,6 +1,7 @@
 package com.wds.parser;
 
 
+import com.wds.util.DictionaryMatcher;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -33,6 +34,22 @@ public class TextParserTest {
         assertTrue(containsAny("IT'S BLOWING' OUT THERE", List.of("BLOWING'")));
     }
 
+    @Test
+    void containsAnyFollowsChangesToTheList() {
+        List<String> values = new ArrayList<>(asList("FOO", "BOO"));
+        assertFalse(containsAny("THERE IS A LOO", values));
+        values.add("LOO");
+        assertTrue(containsAny("THERE IS A LOO", values));
+        assertTrue(containsAny("THERE IS A LOO", DictionaryMatcher.of(values)));
+    }
+
+    @Test
+    void findFirstTokenContainedKeepsListOrder() {
+        assertEquals(Optional.of("FOO"), findFirstTokenContained("BOO AND FOO", asList("FOO", "BOO")));
+        assertEquals(Optional.of("FEAT"), findFirstTokenContained("ARTIST FEAT. OTHER", asList("FT.", "FEAT", "FEAT.")));
+        assertEquals(Optional.empty(), findFirstTokenContained("ARTIST", asList("FT.", "FEAT")));
+    }
+
     @Test
     public void containsAnyWordTest() {
         assertFalse(containsAnyWord("FOOL", asList("FOO", "BOO")));
@@ -0,0 +1,57 @@
+package com.wds.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WordMatcherTest {
+
+    @Test
+    void matchesLikeTheUncompiledRegexes() {
+        Random random = new Random(11);
+        String[] words = {"A", "AB", "B", "BA", "A B"};
+        char[] alphabet = {'A', 'B', ' ', ' ', '-'};
+        for (int i = 0; i < 2_000; i++) {
+            List<String> values = new ArrayList<>();
+            for (int n = 1 + random.nextInt(3); n > 0; n--) {
+                values.add(words[random.nextInt(words.length)]);
+            }
+            WordMatcher matcher = WordMatcher.of(values);
+            for (int j = 0; j < 10; j++) {
+                StringBuilder text = new StringBuilder();
+                for (int n = random.nextInt(8); n > 0; n--) {
+                    text.append(alphabet[random.nextInt(alphabet.length)]);
+                }
+                String s = text.toString();
+
+                assertEquals(s.matches("^.*?" + TextParser.getEqualsAnyRegex(values) + ".*$"), matcher.containsAnyWord(s),
+                        s + " " + values);
+                assertEquals(s.matches(TextParser.getEqualsAnyRegex(values)), matcher.equalsAnyWord(s), s + " " + values);
+                assertEquals(s.matches("(^|.*)(" + String.join("|", values) + ")(.*|$)"), matcher.containsAnyWordRegex(s),
+                        s + " " + values);
+            }
+        }
+    }
+
+    @Test
+    void anEmptyListStillMatchesAnyWordRegex() {
+        assertTrue(TextParser.containsAnyWordRegex("abc", Collections.emptyList()));
+        assertTrue(WordMatcher.of(Collections.emptyList()).containsAnyWordRegex("abc"));
+    }
+
+    @Test
+    void compilesOnceForManyStrings() {
+        WordMatcher matcher = WordMatcher.of(asList("FEAT", "FT"));
+
+        assertTrue(matcher.containsAnyWord("ARTIST FT OTHER"));
+        assertFalse(matcher.containsAnyWord("ARTIST FEATURING OTHER"));
+        assertTrue(matcher.equalsAnyWord("FEAT"));
+        assertFalse(matcher.equalsAnyWord("FEAT OTHER"));
+    }
+}
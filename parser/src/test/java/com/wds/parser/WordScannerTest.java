@@ -0,0 +1,76 @@
+package com.wds.parser;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WordScannerTest {
+
+    @Test
+    void walksWordsAsOffsetRanges() {
+        WordScanner words = new WordScanner(" ONE\tTWO  THREE ");
+
+        assertTrue(words.next());
+        assertEquals(1, words.start());
+        assertEquals(4, words.end());
+        assertEquals("TWO", words.next() ? words.word() : null);
+        assertTrue(words.last());
+        assertEquals("THREE", words.word());
+        assertFalse(words.next());
+    }
+
+    @Test
+    void countsAndCutsInOnePass() {
+        WordScanner words = new WordScanner();
+
+        assertEquals(3, words.reset("ONE TWO THREE").count());
+        assertEquals(7, words.reset("ONE TWO THREE").cutAfter(2));
+        assertEquals(-1, words.reset("ONE TWO THREE").cutAfter(4));
+        assertEquals(0, words.reset("   ").count());
+        assertEquals(2, words.reset("ONE TWO THREE", 4, 13).count());
+    }
+
+    @Test
+    void textParserWordsMatchSplittingOnSpaces() {
+        Random random = new Random(7);
+        char[] alphabet = {'A', 'B', ' ', ' ', '\t', '\n', '\u0001', ' '};
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder s = new StringBuilder();
+            for (int n = random.nextInt(10); n > 0; n--) {
+                s.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String text = s.toString();
+            int count = random.nextInt(5);
+
+            assertEquals(asList(text.split("\\s+")), TextParser.breakBySpace(text), text);
+            assertEquals(StringUtils.isBlank(text) ? 0 : text.split("\\s+").length, TextParser.countWords(text), text);
+            assertEquals(splitLastWord(text), TextParser.getLastWord(text), text);
+            assertEquals(splitFirstWord(text), TextParser.getFirstWord(text), text);
+            assertEquals(splitFirstWords(text, count), TextParser.firstWordsAsList(text, count), text);
+            assertEquals(count >= TextParser.countWords(text) ? text : String.join(" ", splitFirstWords(text, count)),
+                    TextParser.firstWordsAsString(text, count), text);
+        }
+    }
+
+    private static Optional<String> splitLastWord(String s) {
+        if (StringUtils.isBlank(s)) return Optional.empty();
+        List<String> words = asList(s.trim().split("\\s+"));
+        return Optional.of(words.get(words.size() - 1));
+    }
+
+    private static Optional<String> splitFirstWord(String s) {
+        if (StringUtils.isBlank(s)) return Optional.empty();
+        return asList(s.trim().split("\\s+")).stream().filter(StringUtils::isNotBlank).findFirst();
+    }
+
+    private static List<String> splitFirstWords(String s, int count) {
+        List<String> list = asList(s.split("\\s+"));
+        return count >= list.size() ? list : list.subList(0, count);
+    }
+}
@@ -0,0 +1,174 @@
+package com.wd.constructors;
+
+import com.wd.functional.NamedPredicate;
+import com.wd.util.ThreadUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * A frozen Builder: the constructor, the setters in order and the verifiers, held in arrays and never changed,
+ * so one plan can build any number of instances from any number of threads.
+ * <p>
+ * Each instance gets the same setter values - objects passed to Builder.with are shared, not copied.
+ * Verifiers run as chosen by the builder's VerificationMode; a violation throws a VerificationException
+ * naming the violated verifiers along with how long each verifier took. Every verifier runs once per instance and
+ * is timed as it runs; timeVerifiers gives the timings for an instance that passes.
+ */
+public final class BuildPlan<I> {
+
+    private final Supplier<I> constructor;
+    private final Consumer<I>[] modifiers;
+    private final Predicate<I>[] verifiers;
+    private final VerificationMode verificationMode;
+
+    @SuppressWarnings("unchecked")
+    BuildPlan(Supplier<I> constructor, List<Consumer<I>> modifiers, List<Predicate<I>> verifiers,
+              VerificationMode verificationMode) {
+        this.constructor = constructor;
+        this.modifiers = (Consumer<I>[]) modifiers.toArray(new Consumer<?>[0]);
+        this.verifiers = (Predicate<I>[]) verifiers.toArray(new Predicate<?>[0]);
+        this.verificationMode = verificationMode;
+    }
+
+    public I build() {
+        I instance = constructor.get();
+        for (Consumer<I> modifier : modifiers) {
+            modifier.accept(instance);
+        }
+        verifyPredicates(instance);
+        return instance;
+    }
+
+    public List<I> buildAll(int count) {
+        List<I> instances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            instances.add(build());
+        }
+        return instances;
+    }
+
+    /**
+     * @param count
+     * @return a stream of count new instances, which may be made parallel
+     */
+    public Stream<I> stream(long count) {
+        return LongStream.range(0, count).mapToObj(i -> build());
+    }
+
+    /**
+     * time every verifier against an instance without checking what they return, all at once for PARALLEL plans
+     * @param instance
+     * @return how long each verifier took, indexed in verifier order
+     */
+    public List<Duration> timeVerifiers(I instance) {
+        long[] nanos = new long[verifiers.length];
+        if (verificationMode == VerificationMode.PARALLEL) {
+            testInParallel(instance, nanos, new boolean[verifiers.length]);
+        } else {
+            testInOrder(instance, nanos, false, new ArrayList<>());
+        }
+        return timings(nanos, verifiers.length);
+    }
+
+    private void verifyPredicates(I value) {
+        if (verifiers.length == 0) {
+            return;
+        }
+        if (verificationMode == VerificationMode.PARALLEL) {
+            verifyInParallel(value);
+        } else {
+            verifyInOrder(value);
+        }
+    }
+
+    /**
+     * each verifier runs once and is timed as it runs, so a violation reports the timings of the failing pass
+     */
+    private void verifyInOrder(I value) {
+        long[] nanos = new long[verifiers.length];
+        List<String> violations = new ArrayList<>();
+        int evaluated = testInOrder(value, nanos, verificationMode == VerificationMode.FAIL_FAST, violations);
+        if (!violations.isEmpty()) {
+            throw new VerificationException(value, violations, timings(nanos, evaluated));
+        }
+    }
+
+    /**
+     * @return how many verifiers ran; violated verifier names are added to violations
+     */
+    private int testInOrder(I value, long[] nanos, boolean failFast, List<String> violations) {
+        for (int i = 0; i < verifiers.length; i++) {
+            long startedAt = System.nanoTime();
+            boolean passed = verifiers[i].test(value);
+            nanos[i] = System.nanoTime() - startedAt;
+            if (!passed) {
+                violations.add(nameOf(verifiers[i]));
+                if (failFast) {
+                    return i + 1;
+                }
+            }
+        }
+        return verifiers.length;
+    }
+
+    /**
+     * the verifiers are timed as they run, which costs little next to handing them to other threads
+     */
+    private void verifyInParallel(I value) {
+        long[] nanos = new long[verifiers.length];
+        boolean[] passed = new boolean[verifiers.length];
+        testInParallel(value, nanos, passed);
+
+        List<String> violations = new ArrayList<>();
+        for (int i = 0; i < verifiers.length; i++) {
+            if (!passed[i]) {
+                violations.add(nameOf(verifiers[i]));
+            }
+        }
+        if (!violations.isEmpty()) {
+            throw new VerificationException(value, violations, timings(nanos, verifiers.length));
+        }
+    }
+
+    private void testInParallel(I value, long[] nanos, boolean[] passed) {
+        CompletableFuture<?>[] tests = new CompletableFuture<?>[verifiers.length];
+        for (int i = 0; i < verifiers.length; i++) {
+            int index = i;
+            tests[i] = CompletableFuture.runAsync(() -> {
+                long startedAt = System.nanoTime();
+                passed[index] = verifiers[index].test(value);
+                nanos[index] = System.nanoTime() - startedAt;
+            }, ThreadUtils.lightweightExecutor());
+        }
+        try {
+            // join makes the writes of each test visible here
+            CompletableFuture.allOf(tests).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static List<Duration> timings(long[] nanos, int count) {
+        List<Duration> timings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            timings.add(Duration.ofNanos(nanos[i]));
+        }
+        return timings;
+    }
+
+    private static String nameOf(Predicate<?> verifier) {
+        return verifier instanceof NamedPredicate ? ((NamedPredicate<?>) verifier).getName() : verifier.toString();
+    }
+}
@@ -1,21 +1,24 @@
 package com.wd.constructors;
 
-import com.google.common.collect.Sets;
-
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
+/**
+ * Builds an instance from a constructor and setters, in the order the setters were added.
+ * <p>
+ * build() forgets the setters once it has been called; to build many instances from one configuration
+ * freeze() the builder into a BuildPlan.
+ */
 public class Builder<I> {
 
     private final Supplier<I> constructor;
-    private Set<Consumer<I>> modifiers = new HashSet<>();
-    private Set<Predicate<I>> verifiers = new HashSet<>();
+    private List<Consumer<I>> modifiers = new ArrayList<>();
+    private List<Predicate<I>> verifiers = new ArrayList<>();
+    private VerificationMode verificationMode = VerificationMode.COLLECT_ALL;
 
     private Builder(Supplier<I> constructor) {
         this.constructor = constructor;
@@ -25,8 +28,20 @@ public class Builder<I> {
         return new Builder<>(constructor);
     }
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public Builder<I> withVerifiers(Predicate ...predicates) {
-        verifiers = Sets.newHashSet(predicates);
+        verifiers = new ArrayList<>(predicates.length);
+        for (Predicate<?> predicate : predicates) {
+            verifiers.add((Predicate<I>) predicate);
+        }
+        return this;
+    }
+
+    /**
+     * @param verificationMode - COLLECT_ALL by default
+     */
+    public Builder<I> withVerificationMode(VerificationMode verificationMode) {
+        this.verificationMode = verificationMode;
         return this;
     }
 
@@ -37,20 +52,16 @@ public class Builder<I> {
     }
 
     public I build() {
-        I instance = constructor.get();
-        modifiers.forEach(modifier -> modifier.accept(instance));
-        verifyPredicates(instance);
+        I instance = freeze().build();
         modifiers.clear();
         return instance;
     }
 
-    private void verifyPredicates(I value) {
-        List<Predicate<I>> violated = verifiers.stream()
-                .filter(e -> !e.test(value)).collect(Collectors.toList());
-
-        if (!violated.isEmpty()) {
-            throw new IllegalStateException(value.toString()
-                    + " violates predicates " + violated);
-        }
+    /**
+     * @return an immutable plan of the current constructor, setters and verifiers; later changes to this builder
+     * do not affect it
+     */
+    public BuildPlan<I> freeze() {
+        return new BuildPlan<>(constructor, modifiers, verifiers, verificationMode);
     }
 }
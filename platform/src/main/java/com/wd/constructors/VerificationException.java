@@ -0,0 +1,35 @@
+package com.wd.constructors;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * thrown when a built instance violates its verifiers. Verifiers are named by NamedPredicate names, or toString
+ */
+public class VerificationException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> violations;
+    private final List<Duration> timings;
+
+    VerificationException(Object instance, List<String> violations, List<Duration> timings) {
+        super(instance + " violates predicates " + violations);
+        this.violations = violations;
+        this.timings = timings;
+    }
+
+    /**
+     * @return names of the violated verifiers, in verifier order
+     */
+    public List<String> getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return how long each verifier that ran took, indexed in verifier order; fail fast stops at the violation
+     */
+    public List<Duration> getTimings() {
+        return timings;
+    }
+}
@@ -0,0 +1,22 @@
+package com.wd.constructors;
+
+/**
+ * how a BuildPlan runs its verifiers over each instance
+ */
+public enum VerificationMode {
+
+    /**
+     * in order, stopping at the first violated verifier
+     */
+    FAIL_FAST,
+
+    /**
+     * in order, reporting every violated verifier
+     */
+    COLLECT_ALL,
+
+    /**
+     * all at once on lightweight threads, reporting every violated verifier; for verifiers that wait on lookups
+     */
+    PARALLEL
+}
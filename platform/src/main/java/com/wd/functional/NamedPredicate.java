@@ -12,6 +12,10 @@ public class NamedPredicate<T> implements Predicate<T> {
         this.predicate = predicate;
     }
 
+    public String getName() {
+        return name;
+    }
+
     @Override
     public boolean test(T t) {
         return predicate.test(t);
@@ -0,0 +1,65 @@
+package com.wd.iterables;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * PrimitiveBlockingQueue of unboxed double values. Its iterator blocks on hasNext like IterableBlockingQueue's,
+ * handing each value to exactly one of the iterating consumers without boxing it
+ */
+public class DoubleBlockingQueue extends PrimitiveBlockingQueue<double[]> implements Iterable<Double> {
+
+    public DoubleBlockingQueue(int capacity) {
+        super(new double[capacity]);
+    }
+
+    /**
+     * add one value, blocking while the ring is full; prefer addAll when values arrive in runs
+     * @param value
+     */
+    public void add(double value) {
+        lock.lock();
+        try {
+            ring[claimSlot()] = value;
+            published();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PrimitiveIterator.OfDouble iterator() {
+        return new PrimitiveIterator.OfDouble() {
+
+            private boolean hasNext;
+            private double next;
+
+            @Override
+            public boolean hasNext() {
+                if (!hasNext) {
+                    lock.lock();
+                    try {
+                        int slot = awaitHead();
+                        if (slot >= 0) {
+                            next = ring[slot];
+                            taken();
+                            hasNext = true;
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                return hasNext;
+            }
+
+            @Override
+            public double nextDouble() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                hasNext = false;
+                return next;
+            }
+        };
+    }
+}
@@ -1,8 +1,17 @@
 package com.wd.iterables;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class should be used as an "iterable" by consumers and a queue by producers.
@@ -13,63 +22,394 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * Which would allow multiple consumer threads to share the work generated by any number of producers adding to this queue.
  * <p>
  * Consumers will continue to iterate until producers call the "done()" method.
+ * <p>
+ * A queue created with a capacity applies backpressure: adding to a full queue blocks, times out or is rejected
+ * depending on its OverflowPolicy. The highest depth reached is kept as a high water mark.
+ * <p>
+ * Adding and taking are lock free while there is something to do. The lock is only taken to park on,
+ * or to signal a thread that is parked, so a waiting consumer wakes as soon as an element or done() arrives.
  */
 public class IterableBlockingQueue<T> implements Iterable<T> {
 
-    private Queue<T> queue = new ConcurrentLinkedQueue<T>();
-    private boolean isDone = false;
+    private final Queue<T> queue = new ConcurrentLinkedQueue<T>();
+    private volatile boolean isDone = false;
+    private volatile boolean isCancelled = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+    private final Queue<Runnable> availabilityCallbacks = new ConcurrentLinkedQueue<>();
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long timeoutNanos;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private QueueMetrics metrics = QueueMetrics.NOOP;
+
+    public IterableBlockingQueue() {
+        this(Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+    }
+
+    public IterableBlockingQueue(int capacity) {
+        this(capacity, OverflowPolicy.BLOCK);
+    }
+
+    public IterableBlockingQueue(int capacity, OverflowPolicy overflowPolicy) {
+        this(capacity, overflowPolicy, Duration.ZERO);
+    }
 
-    private final Object monitor = new Object();
+    /**
+     * @param capacity - maximum number of queued elements
+     * @param overflowPolicy - what add does when the queue is full
+     * @param timeout - how long add waits for room under the TIMEOUT policy
+     */
+    public IterableBlockingQueue(int capacity, OverflowPolicy overflowPolicy, Duration timeout) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * report queue activity to the listener; call before handing the queue to producers and consumers
+     * @param metrics
+     * @return this queue
+     */
+    public IterableBlockingQueue<T> withMetrics(QueueMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
 
     public void done() {
-        synchronized (monitor) {
+        lock.lock();
+        try {
             isDone = true;
-            monitor.notify();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
         }
+        runAvailabilityCallbacks();
     }
 
+    /**
+     * stop the queue early: queued elements are discarded, waiting consumers see the end of the queue
+     * and producers - including ones blocked on a full queue - fail with a CancellationException
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            isCancelled = true;
+            isDone = true;
+            while (take() != null) {
+                // discard
+            }
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        runAvailabilityCallbacks();
+    }
+
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    /**
+     * add an element, applying the overflow policy if the queue is at capacity
+     * @param object
+     * @throws IllegalStateException if the element is rejected, or the wait for room times out or is interrupted
+     * @throws CancellationException if the queue has been cancelled
+     * @throws NullPointerException if object is null, before it takes up any room
+     */
     public void add(T object) {
-        synchronized (monitor) {
-            queue.add(object);
-            monitor.notify();
+        Objects.requireNonNull(object, "queued elements must not be null");
+        if (isCancelled) {
+            throw new CancellationException("queue was cancelled");
+        }
+        if (!tryReserve()) {
+            awaitRoom();
+        }
+        queue.add(object);
+        if (isCancelled) {
+            // cancel() may have drained before this element landed, so discard it here
+            while (take() != null) {
+                // discard
+            }
+            throw new CancellationException("queue was cancelled");
+        }
+        int depth = count.get();
+        if (depth > highWaterMark.get()) {
+            highWaterMark.accumulateAndGet(depth, Math::max);
+        }
+        if (metrics != QueueMetrics.NOOP) {
+            metrics.onEnqueue(depth);
+        }
+        // a consumer registers as waiting before its last look at the queue, so either it sees this element
+        // or we see it waiting and wake it
+        if (waitingConsumers.get() > 0) {
+            signal(notEmpty);
+        }
+        if (!availabilityCallbacks.isEmpty()) {
+            runAvailabilityCallbacks();
+        }
+    }
+
+    private boolean tryReserve() {
+        int current;
+        do {
+            current = count.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!count.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void awaitRoom() {
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            rejected.incrementAndGet();
+            throw new IllegalStateException("queue is full, capacity=" + capacity);
+        }
+        long remaining = timeoutNanos;
+        long blockedAt = metrics != QueueMetrics.NOOP ? System.nanoTime() : 0;
+        lock.lock();
+        waitingProducers.incrementAndGet();
+        try {
+            while (!tryReserve()) {
+                if (isCancelled) {
+                    throw new CancellationException("queue was cancelled");
+                }
+                if (overflowPolicy == OverflowPolicy.BLOCK) {
+                    notFull.await();
+                } else if (remaining > 0) {
+                    remaining = notFull.awaitNanos(remaining);
+                } else {
+                    rejected.incrementAndGet();
+                    throw new IllegalStateException("queue still full after " + timeoutNanos + "ns, capacity=" + capacity);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("add was interrupted", e);
+        } finally {
+            waitingProducers.decrementAndGet();
+            lock.unlock();
+            if (blockedAt != 0) {
+                metrics.onProducerBlocked(System.nanoTime() - blockedAt);
+            }
         }
     }
 
     public Integer size() {
-        return queue.size();
+        return count.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the largest number of elements the queue has held at once
+     */
+    public int highWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * @return the number of adds that failed because the queue was full
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * take the next element without blocking
+     * @return the element, or null if none is queued right now
+     */
+    public T poll() {
+        return isCancelled ? null : take();
+    }
+
+    /**
+     * @return true once the producers are done and every element has been taken
+     */
+    public boolean isDrained() {
+        return isDone && queue.isEmpty();
+    }
+
+    /**
+     * run the callback once, as soon as an element is queued or the queue is done - straight away if that is already so.
+     * lets non-blocking consumers wait for elements without parking a thread; the callback runs on the thread that
+     * added the element or called done(), so it should only hand work off
+     * @param callback
+     */
+    public void whenAvailable(Runnable callback) {
+        availabilityCallbacks.add(callback);
+        // an add that raced with the registration may have missed the callback, so look again
+        if ((!queue.isEmpty() || isDone) && availabilityCallbacks.remove(callback)) {
+            callback.run();
+        }
+    }
+
+    /**
+     * take back a callback registered with whenAvailable that is no longer wanted
+     * @param callback
+     * @return false if it was never registered or has already run
+     */
+    public boolean removeWhenAvailable(Runnable callback) {
+        return availabilityCallbacks.remove(callback);
+    }
+
+    private void runAvailabilityCallbacks() {
+        Runnable callback;
+        while ((callback = availabilityCallbacks.poll()) != null) {
+            callback.run();
+        }
+    }
+
+    /**
+     * move up to maxElements into the collection, blocking until that many are available or the producers are done.
+     * safe to call from several consumer threads at once - each element is handed to exactly one of them
+     * @param collection
+     * @param maxElements
+     * @return the number of elements drained, 0 only when the queue is done and empty
+     */
+    public int drainTo(Collection<? super T> collection, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            T thing = awaitElement(false, 0);
+            if (thing == null) {
+                break;
+            }
+            collection.add(thing);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * move up to maxElements into the collection, blocking until the first one arrives and then waiting
+     * at most linger for the rest - a partial batch is returned once linger has passed since the first element
+     * @param collection
+     * @param maxElements
+     * @param linger
+     * @return the number of elements drained, 0 only when the queue is done and empty
+     */
+    public int drainTo(Collection<? super T> collection, int maxElements, Duration linger) {
+        T first = awaitElement(false, 0);
+        if (first == null) {
+            return 0;
+        }
+        collection.add(first);
+        int drained = 1;
+        long deadline = System.nanoTime() + linger.toNanos();
+        while (drained < maxElements) {
+            T thing = awaitElement(true, deadline - System.nanoTime());
+            if (thing == null) {
+                break;
+            }
+            collection.add(thing);
+            drained++;
+        }
+        return drained;
+    }
+
+    private T take() {
+        T thing = queue.poll();
+        if (thing != null) {
+            int depth = count.decrementAndGet();
+            if (metrics != QueueMetrics.NOOP) {
+                metrics.onDequeue(depth);
+            }
+            if (waitingProducers.get() > 0) {
+                signal(notFull);
+            }
+        }
+        return thing;
+    }
+
+    /**
+     * @param timed - give up once nanos have passed
+     * @param nanos
+     * @return the next element, or null once the queue is done and empty or the wait timed out
+     */
+    private T awaitElement(boolean timed, long nanos) {
+        if (isCancelled) {
+            return null;
+        }
+        T thing = take();
+        if (thing != null || (timed && nanos <= 0)) {
+            return thing;
+        }
+        long idleAt = metrics != QueueMetrics.NOOP ? System.nanoTime() : 0;
+        lock.lock();
+        waitingConsumers.incrementAndGet();
+        try {
+            while (true) {
+                // every add happens before done(), so reading the flag first makes an empty take after it final
+                boolean done = isDone;
+                thing = take();
+                if (thing != null || done) {
+                    return thing;
+                }
+                if (!timed) {
+                    notEmpty.await();
+                } else if (nanos > 0) {
+                    nanos = notEmpty.awaitNanos(nanos);
+                } else {
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for elements", e);
+        } finally {
+            waitingConsumers.decrementAndGet();
+            lock.unlock();
+            if (idleAt != 0) {
+                metrics.onConsumerIdle(System.nanoTime() - idleAt);
+            }
+        }
+    }
+
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public Iterator<T> iterator() {
         return new Iterator<T>() {
+
+            private T next;
+
             @Override
             public boolean hasNext() {
-                try {
-                    while (queue.isEmpty() && !isDone) {
-                        synchronized (monitor) {
-                            monitor.wait(150);
-                        }
-                    }
-                } catch (InterruptedException e) {
+                if (next == null) {
+                    next = awaitElement(false, 0);
                 }
-                return !(queue.isEmpty() && isDone);
+                return next != null;
             }
 
             @Override
             public T next() {
-                synchronized (monitor) {
-                    final T thing = queue.remove();
-                    monitor.notify();
-                    return thing;
-                }
-            }
-
-            @Override
-            public void remove() {
-                synchronized (monitor) {
-                    queue.remove();
-                    monitor.notify();
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
+                final T thing = next;
+                next = null;
+                return thing;
             }
         };
     }
@@ -0,0 +1,13 @@
+package com.wd.iterables;
+
+/**
+ * what a bounded IterableBlockingQueue does when a producer adds to a full queue
+ */
+public enum OverflowPolicy {
+    /** wait until a consumer makes room */
+    BLOCK,
+    /** wait up to the queue timeout, then fail the add */
+    TIMEOUT,
+    /** fail the add immediately */
+    REJECT
+}
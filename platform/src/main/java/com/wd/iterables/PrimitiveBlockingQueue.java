@@ -0,0 +1,274 @@
+package com.wd.iterables;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded blocking queue of primitives kept in a preallocated ring - an int[], long[] or double[] - so values are
+ * never boxed and queueing allocates nothing. Values move in and out in bulk with System.arraycopy, one lock
+ * acquisition per chunk rather than per value.
+ * <p>
+ * Like IterableBlockingQueue, consumers keep draining until producers call done(), either in bulk with drainTo
+ * or one value at a time through the primitive iterator of each subclass, which blocks on hasNext.
+ *
+ * @param <A> the primitive array type of the ring
+ */
+public abstract class PrimitiveBlockingQueue<A> {
+
+    protected final A ring;
+    protected final int capacity;
+    private int head;
+    private int count;
+    private boolean isDone;
+    private boolean isCancelled;
+    private QueueMetrics metrics = QueueMetrics.NOOP;
+
+    protected final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    protected PrimitiveBlockingQueue(A ring) {
+        this.ring = ring;
+        this.capacity = Array.getLength(ring);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+        }
+    }
+
+    /**
+     * report queue activity to the listener, once per chunk added or drained; call before handing the queue
+     * to producers and consumers
+     * @param metrics
+     * @return this queue
+     */
+    public PrimitiveBlockingQueue<A> withMetrics(QueueMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public void done() {
+        lock.lock();
+        try {
+            isDone = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * discard queued values, end the consumers and make producers fail with a CancellationException
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            isCancelled = true;
+            isDone = true;
+            count = 0;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isCancelled() {
+        lock.lock();
+        try {
+            return isCancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * add length values from source starting at offset, blocking while the ring is full
+     * @param source
+     * @param offset
+     * @param length
+     */
+    public void addAll(A source, int offset, int length) {
+        lock.lock();
+        try {
+            int added = 0;
+            while (added < length) {
+                awaitRoom();
+                int n = Math.min(capacity - count, length - added);
+                int tail = (head + count) % capacity;
+                int firstPart = Math.min(n, capacity - tail);
+                System.arraycopy(source, offset + added, ring, tail, firstPart);
+                System.arraycopy(source, offset + added + firstPart, ring, 0, n - firstPart);
+                count += n;
+                added += n;
+                notEmpty.signalAll();
+                if (metrics != QueueMetrics.NOOP) {
+                    metrics.onEnqueue(count);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * wait for a free slot and return its ring index; the caller must hold the lock, store the value and call published()
+     */
+    protected int claimSlot() {
+        awaitRoom();
+        return (head + count) % capacity;
+    }
+
+    protected void published() {
+        count++;
+        notEmpty.signalAll();
+        if (metrics != QueueMetrics.NOOP) {
+            metrics.onEnqueue(count);
+        }
+    }
+
+    /**
+     * wait for a queued value and return its ring index, or -1 once the queue is done and empty;
+     * the caller must hold the lock, read the value and call taken()
+     */
+    protected int awaitHead() {
+        try {
+            return awaitValues(false, 0) ? head : -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for elements", e);
+        }
+    }
+
+    protected void taken() {
+        head = (head + 1) % capacity;
+        count--;
+        notFull.signalAll();
+        if (metrics != QueueMetrics.NOOP) {
+            metrics.onDequeue(count);
+        }
+    }
+
+    private void awaitRoom() {
+        long blockedAt = metrics != QueueMetrics.NOOP && count == capacity ? System.nanoTime() : 0;
+        try {
+            while (count == capacity && !isCancelled) {
+                notFull.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("add was interrupted", e);
+        } finally {
+            if (blockedAt != 0) {
+                metrics.onProducerBlocked(System.nanoTime() - blockedAt);
+            }
+        }
+        if (isCancelled) {
+            throw new CancellationException("queue was cancelled");
+        }
+    }
+
+    /**
+     * copy up to maxElements values into target from index 0, blocking until that many are available or producers are done
+     * @param target
+     * @param maxElements
+     * @return the number of values copied, 0 only when the queue is done and empty
+     */
+    public int drainTo(A target, int maxElements) {
+        return drain(target, maxElements, false, 0);
+    }
+
+    /**
+     * copy up to maxElements values into target from index 0, blocking until the first one arrives and then waiting
+     * at most linger for the rest - a partial batch is returned once linger has passed since the first value
+     * @param target
+     * @param maxElements
+     * @param linger
+     * @return the number of values copied, 0 only when the queue is done and empty
+     */
+    public int drainTo(A target, int maxElements, Duration linger) {
+        return drain(target, maxElements, true, linger.toNanos());
+    }
+
+    private int drain(A target, int maxElements, boolean lingers, long lingerNanos) {
+        lock.lock();
+        try {
+            int drained = 0;
+            long deadline = 0;
+            while (drained < maxElements) {
+                if (!awaitValues(lingers && drained > 0, deadline)) {
+                    return drained;
+                }
+                if (drained == 0) {
+                    deadline = System.nanoTime() + lingerNanos;
+                }
+                int n = Math.min(count, maxElements - drained);
+                int firstPart = Math.min(n, capacity - head);
+                System.arraycopy(ring, head, target, drained, firstPart);
+                System.arraycopy(ring, 0, target, drained + firstPart, n - firstPart);
+                head = (head + n) % capacity;
+                count -= n;
+                drained += n;
+                notFull.signalAll();
+                if (metrics != QueueMetrics.NOOP) {
+                    metrics.onDequeue(count);
+                }
+            }
+            return drained;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for elements", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * the caller must hold the lock
+     * @param timed - give up once the deadline has passed
+     * @param deadline - System.nanoTime() to wait until
+     * @return true once a value is queued, false if the queue is done and empty or the deadline passed
+     */
+    private boolean awaitValues(boolean timed, long deadline) throws InterruptedException {
+        if (count > 0) {
+            return true;
+        }
+        long idleAt = metrics != QueueMetrics.NOOP ? System.nanoTime() : 0;
+        try {
+            while (count == 0) {
+                if (isDone) {
+                    return false;
+                }
+                if (!timed) {
+                    notEmpty.await();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    notEmpty.awaitNanos(remaining);
+                }
+            }
+            return true;
+        } finally {
+            if (idleAt != 0) {
+                metrics.onConsumerIdle(System.nanoTime() - idleAt);
+            }
+        }
+    }
+}
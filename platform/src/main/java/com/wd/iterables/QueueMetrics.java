@@ -0,0 +1,30 @@
+package com.wd.iterables;
+
+/**
+ * listener for IterableBlockingQueue activity. every method defaults to doing nothing,
+ * and the queue skips timing altogether when it is given NOOP, so unused metrics cost nothing on the hot path
+ */
+public interface QueueMetrics {
+
+    QueueMetrics NOOP = new QueueMetrics() {};
+
+    /**
+     * @param depth - queued elements right after the add
+     */
+    default void onEnqueue(int depth) {}
+
+    /**
+     * @param depth - queued elements right after the take
+     */
+    default void onDequeue(int depth) {}
+
+    /**
+     * @param nanos - how long a producer waited for room in a full queue
+     */
+    default void onProducerBlocked(long nanos) {}
+
+    /**
+     * @param nanos - how long a consumer waited on an empty queue
+     */
+    default void onConsumerIdle(long nanos) {}
+}
@@ -0,0 +1,119 @@
+package com.wd.iterables;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flow.Publisher view of an IterableBlockingQueue. Elements are emitted only against subscriber demand and no thread
+ * ever parks waiting for them: when the queue runs dry a subscription registers for the next add and returns.
+ * <p>
+ * Like several iterators over the same queue, several subscribers share the elements - each one goes to a single subscriber.
+ * The subscriber completes once the queue is done and drained.
+ */
+public class QueuePublisher<T> implements Flow.Publisher<T> {
+
+    private final IterableBlockingQueue<T> queue;
+    private final Executor executor;
+
+    /**
+     * @param queue
+     * @param executor - runs the emission loops; subscribers are called on its threads
+     */
+    public QueuePublisher(IterableBlockingQueue<T> queue, Executor executor) {
+        this.queue = queue;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        QueueSubscription subscription = new QueueSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.schedule();
+    }
+
+    private class QueueSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private final AtomicBoolean waitingForElements = new AtomicBoolean();
+        private final Runnable onAvailable = () -> {
+            waitingForElements.set(false);
+            schedule();
+        };
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        QueueSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // signalled from the drain so it cannot overlap an onNext already running
+                error = new IllegalArgumentException("request must be positive, was " + n);
+                schedule();
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            // don't leave the callback on the queue until the next add
+            if (waitingForElements.compareAndSet(true, false)) {
+                queue.removeWhenAvailable(onAvailable);
+            }
+        }
+
+        void schedule() {
+            // only the call that moves pendingDrains off zero starts a drain, the running drain picks up the rest
+            if (pendingDrains.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                emit();
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            while (!cancelled) {
+                if (error != null) {
+                    cancelled = true;
+                    subscriber.onError(error);
+                    return;
+                }
+                if (queue.isDrained()) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                if (demand.get() == 0) {
+                    return;
+                }
+                T thing = queue.poll();
+                if (thing == null) {
+                    if (waitingForElements.compareAndSet(false, true)) {
+                        queue.whenAvailable(onAvailable);
+                    }
+                    return;
+                }
+                demand.decrementAndGet();
+                subscriber.onNext(thing);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.wd.iterables;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+
+/**
+ * Flow.Subscriber that feeds an IterableBlockingQueue - each element is added to the queue, and completion or an error
+ * marks the queue done. An element the queue rejects cancels the subscription and is reported as the error.
+ * Demand is requested in chunks of prefetch, topped up when half of a chunk has arrived.
+ * <p>
+ * With a bounded BLOCK queue, onNext blocks the publisher's thread while the queue is full, so keep prefetch at or
+ * below the queue capacity to let demand do the throttling instead.
+ */
+public class QueueSubscriber<T> implements Flow.Subscriber<T> {
+
+    private final IterableBlockingQueue<T> queue;
+    private final int prefetch;
+    private final int replenishAt;
+    private Flow.Subscription subscription;
+    private int receivedSinceRequest;
+    private volatile Throwable error;
+
+    public QueueSubscriber(IterableBlockingQueue<T> queue, int prefetch) {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("prefetch must be at least 1, was " + prefetch);
+        }
+        this.queue = queue;
+        this.prefetch = prefetch;
+        this.replenishAt = Math.max(1, prefetch / 2);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(prefetch);
+    }
+
+    @Override
+    public void onNext(T item) {
+        try {
+            queue.add(item);
+        } catch (CancellationException e) {
+            subscription.cancel();
+            return;
+        } catch (IllegalStateException e) {
+            // rejected or timed out on a full queue, stop the publisher rather than throw from onNext
+            subscription.cancel();
+            onError(e);
+            return;
+        }
+        if (++receivedSinceRequest == replenishAt) {
+            receivedSinceRequest = 0;
+            subscription.request(replenishAt);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        queue.done();
+    }
+
+    @Override
+    public void onComplete() {
+        queue.done();
+    }
+
+    /**
+     * @return the error the publisher ended with, if any
+     */
+    public Optional<Throwable> getError() {
+        return Optional.ofNullable(error);
+    }
+}
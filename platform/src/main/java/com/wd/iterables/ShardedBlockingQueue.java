@@ -0,0 +1,171 @@
+package com.wd.iterables;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Same add / done / iterator contract as IterableBlockingQueue, for many concurrent producers.
+ * <p>
+ * Elements go to one of several shards picked by the adding thread, so producers on different threads rarely touch
+ * the same queue head. Each iterator starts on its own home shard and steals from the others when that one is empty.
+ * Order is kept per producer thread within a shard, not across producers.
+ * <p>
+ * Consumers will continue to iterate until producers call the "done()" method.
+ */
+public class ShardedBlockingQueue<T> implements Iterable<T> {
+
+    private final Queue<T>[] shards;
+    private final LongAdder size = new LongAdder();
+    private final AtomicInteger nextHomeShard = new AtomicInteger();
+    private volatile boolean isDone = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+
+    public ShardedBlockingQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public ShardedBlockingQueue(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1, was " + shardCount);
+        }
+        shards = (Queue<T>[]) new Queue<?>[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public void done() {
+        lock.lock();
+        try {
+            isDone = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void add(T object) {
+        shards[shardOf(Thread.currentThread())].add(object);
+        size.increment();
+        if (waitingConsumers.get() > 0) {
+            lock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private int shardOf(Thread thread) {
+        // spread sequential thread ids before folding them onto the shards
+        int hash = (int) (thread.getId() * 0x9E3779B97F4A7C15L >>> 32);
+        return (hash & Integer.MAX_VALUE) % shards.length;
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * move up to maxElements into the collection, blocking until that many are available or the producers are done
+     * @param collection
+     * @param maxElements
+     * @return the number of elements drained, 0 only when the queue is done and empty
+     */
+    public int drainTo(Collection<? super T> collection, int maxElements) {
+        int home = Math.floorMod(nextHomeShard.getAndIncrement(), shards.length);
+        int drained = 0;
+        while (drained < maxElements) {
+            T thing = awaitElement(home);
+            if (thing == null) {
+                break;
+            }
+            collection.add(thing);
+            drained++;
+        }
+        return drained;
+    }
+
+    private T take(int home) {
+        for (int i = 0; i < shards.length; i++) {
+            T thing = shards[(home + i) % shards.length].poll();
+            if (thing != null) {
+                size.decrement();
+                return thing;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the next element, or null once the queue is done and empty
+     */
+    private T awaitElement(int home) {
+        T thing = take(home);
+        if (thing != null) {
+            return thing;
+        }
+        lock.lock();
+        waitingConsumers.incrementAndGet();
+        try {
+            while (true) {
+                // every add happens before done(), so reading the flag first makes an empty scan after it final
+                boolean done = isDone;
+                thing = take(home);
+                if (thing != null || done) {
+                    return thing;
+                }
+                notEmpty.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for elements", e);
+        } finally {
+            waitingConsumers.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final int home = Math.floorMod(nextHomeShard.getAndIncrement(), shards.length);
+        return new Iterator<T>() {
+
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = awaitElement(home);
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final T thing = next;
+                next = null;
+                return thing;
+            }
+        };
+    }
+}
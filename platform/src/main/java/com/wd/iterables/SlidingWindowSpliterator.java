@@ -5,22 +5,108 @@ import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+/**
+ * Windows of windowSize consecutive elements, each one element on from the last.
+ * <p>
+ * Over a RandomAccess list windows are read by index, so the spliterator splits for parallel streams: each half
+ * takes a range of window start positions, and neighbouring halves share the windowSize - 1 elements they overlap on.
+ * Other collections are walked with their iterator and do not split.
+ * <p>
+ * Iterators and streams, which may be unbounded or live like an IterableBlockingQueue, are windowed as elements
+ * arrive, with an unknown size. Their windows can hop by more than one element: a step of windowSize gives tumbling
+ * windows, a larger step skips elements between windows. A trailing partial window is dropped.
+ */
 public class SlidingWindowSpliterator<T> implements Spliterator<Stream<T>> {
 
-    static <T> Stream<Stream<T>> windowed(Collection<T> stream, int windowSize) {
+    public static <T> Stream<Stream<T>> windowed(Collection<T> stream, int windowSize) {
         return StreamSupport.stream(new SlidingWindowSpliterator<>(stream, windowSize), false);
     }
 
+    /**
+     * windows starting every step elements, read from the iterator as they are needed
+     * @param source
+     * @param windowSize
+     * @param step - elements from the start of one window to the start of the next
+     */
+    public static <T> Stream<Stream<T>> windowed(Iterator<T> source, int windowSize, int step) {
+        return StreamSupport.stream(new SlidingWindowSpliterator<>(source, windowSize, step), false);
+    }
+
+    public static <T> Stream<Stream<T>> windowed(Stream<T> source, int windowSize) {
+        return windowed(source, windowSize, 1);
+    }
+
+    /**
+     * windows starting every step elements; closing the window stream closes source
+     * @param source
+     * @param windowSize
+     * @param step - elements from the start of one window to the start of the next
+     */
+    public static <T> Stream<Stream<T>> windowed(Stream<T> source, int windowSize, int step) {
+        return windowed(source.iterator(), windowSize, step).onClose(source::close);
+    }
+
+    /**
+     * consecutive windows that do not overlap
+     */
+    public static <T> Stream<Stream<T>> tumbling(Stream<T> source, int windowSize) {
+        return windowed(source, windowSize, windowSize);
+    }
+
     private final Queue<T> buffer;
     private final Iterator<T> sourceIterator;
+    private final List<T> list;
     private final int windowSize;
+    private final int step;
+    // source elements to drop before the next window starts, when windows hop further than they are long
+    private int toSkip;
+    // -1 when unknown
     private final int size;
+    // start positions of the windows left to this spliterator, when reading by index
+    private int origin;
+    private final int fence;
 
     private SlidingWindowSpliterator(Collection<T> source, int windowSize) {
-        this.buffer = new ArrayDeque<>(windowSize);
-        this.sourceIterator = Objects.requireNonNull(source).iterator();
+        Objects.requireNonNull(source);
         this.windowSize = windowSize;
+        this.step = 1;
         this.size = calculateSize(source, windowSize);
+        if (source instanceof List && source instanceof RandomAccess) {
+            this.list = (List<T>) source;
+            this.buffer = null;
+            this.sourceIterator = null;
+            this.origin = 0;
+            this.fence = windowSize < 1 ? 0 : size;
+        } else {
+            this.list = null;
+            this.buffer = new ArrayDeque<>(windowSize);
+            this.sourceIterator = source.iterator();
+            this.fence = 0;
+        }
+    }
+
+    private SlidingWindowSpliterator(Iterator<T> source, int windowSize, int step) {
+        if (step < 1) {
+            throw new IllegalArgumentException("step must be at least 1, was " + step);
+        }
+        this.list = null;
+        this.buffer = new ArrayDeque<>(Math.max(windowSize, 1));
+        this.sourceIterator = Objects.requireNonNull(source);
+        this.windowSize = windowSize;
+        this.step = step;
+        this.size = -1;
+        this.fence = 0;
+    }
+
+    private SlidingWindowSpliterator(List<T> list, int windowSize, int origin, int fence) {
+        this.list = list;
+        this.buffer = null;
+        this.sourceIterator = null;
+        this.windowSize = windowSize;
+        this.step = 1;
+        this.size = fence - origin;
+        this.origin = origin;
+        this.fence = fence;
     }
 
     @Override
@@ -28,14 +114,35 @@ public class SlidingWindowSpliterator<T> implements Spliterator<Stream<T>> {
         if (windowSize < 1) {
             return false;
         }
+        if (list != null) {
+            if (origin >= fence) {
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            T[] window = (T[]) list.subList(origin, origin + windowSize).toArray();
+            action.accept(Arrays.stream(window));
+            origin++;
+            return true;
+        }
 
         while (sourceIterator.hasNext()) {
-            buffer.add(sourceIterator.next());
+            T next = sourceIterator.next();
+            if (toSkip > 0) {
+                toSkip--;
+                continue;
+            }
+            buffer.add(next);
 
             if (buffer.size() == windowSize) {
-                action.accept(Arrays.stream((T[]) buffer.toArray(new Object[0])));
-                buffer.poll();
-                return sourceIterator.hasNext();
+                @SuppressWarnings("unchecked")
+                T[] window = (T[]) buffer.toArray(new Object[0]);
+                action.accept(Arrays.stream(window));
+                for (int i = 0; i < step && !buffer.isEmpty(); i++) {
+                    buffer.poll();
+                }
+                toSkip = Math.max(0, step - windowSize);
+                // don't ask the source for more yet, on a live queue that would hold this window back
+                return true;
             }
         }
 
@@ -44,17 +151,29 @@ public class SlidingWindowSpliterator<T> implements Spliterator<Stream<T>> {
 
     @Override
     public Spliterator<Stream<T>> trySplit() {
-        return null;
+        if (list == null || fence - origin < 2) {
+            return null;
+        }
+        int mid = (origin + fence) >>> 1;
+        Spliterator<Stream<T>> prefix = new SlidingWindowSpliterator<>(list, windowSize, origin, mid);
+        origin = mid;
+        return prefix;
     }
 
     @Override
     public long estimateSize() {
-        return size;
+        if (list != null) {
+            return fence - origin;
+        }
+        return size < 0 ? Long.MAX_VALUE : size;
     }
 
     @Override
     public int characteristics() {
-        return ORDERED | NONNULL | SIZED;
+        if (list != null) {
+            return ORDERED | NONNULL | SIZED | SUBSIZED;
+        }
+        return size < 0 ? ORDERED | NONNULL : ORDERED | NONNULL | SIZED;
     }
 
     private static int calculateSize(Collection<?> source, int windowSize) {
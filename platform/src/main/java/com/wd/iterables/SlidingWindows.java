@@ -0,0 +1,217 @@
+package com.wd.iterables;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Sliding windows without copying: windows over lists are subList views and windows over primitive arrays are
+ * index ranges, so a window costs O(1) rather than O(windowSize).
+ * <p>
+ * The rolling aggregations step each window from the previous one in O(1) - sums and means add the new element and
+ * subtract the old one, min and max keep a monotonic deque of candidate indexes - and allocate only their results.
+ * Rolling sums and means of doubles can pick up rounding error over very long series.
+ * <p>
+ * Every method gives length - windowSize + 1 windows, none when the source is shorter than a window.
+ */
+public class SlidingWindows {
+
+    /**
+     * called with the bounds of each window, from inclusive and to exclusive
+     */
+    @FunctionalInterface
+    public interface IndexRangeConsumer {
+        void accept(int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface IndexOrder {
+        // true if the value at index i beats the one at index j, so j can never be a window's answer again
+        boolean beats(int i, int j);
+    }
+
+    /**
+     * windows as views onto source, valid as long as source is not structurally modified.
+     * the stream splits for parallel use; prefer a RandomAccess source, as a linked list walks to each window
+     * @param source
+     * @param windowSize
+     */
+    public static <T> Stream<List<T>> views(List<T> source, int windowSize) {
+        int windows = windowCount(source.size(), windowSize);
+        return IntStream.range(0, windows).mapToObj(from -> source.subList(from, from + windowSize));
+    }
+
+    public static void forEachWindow(int[] values, int windowSize, IndexRangeConsumer consumer) {
+        forEachWindow(values.length, windowSize, consumer);
+    }
+
+    public static void forEachWindow(long[] values, int windowSize, IndexRangeConsumer consumer) {
+        forEachWindow(values.length, windowSize, consumer);
+    }
+
+    public static void forEachWindow(double[] values, int windowSize, IndexRangeConsumer consumer) {
+        forEachWindow(values.length, windowSize, consumer);
+    }
+
+    private static void forEachWindow(int length, int windowSize, IndexRangeConsumer consumer) {
+        int windows = windowCount(length, windowSize);
+        for (int from = 0; from < windows; from++) {
+            consumer.accept(from, from + windowSize);
+        }
+    }
+
+    public static long[] rollingSum(int[] values, int windowSize) {
+        long[] sums = new long[windowCount(values.length, windowSize)];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            if (i >= windowSize) {
+                sum -= values[i - windowSize];
+            }
+            if (i >= windowSize - 1) {
+                sums[i - windowSize + 1] = sum;
+            }
+        }
+        return sums;
+    }
+
+    public static long[] rollingSum(long[] values, int windowSize) {
+        long[] sums = new long[windowCount(values.length, windowSize)];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            if (i >= windowSize) {
+                sum -= values[i - windowSize];
+            }
+            if (i >= windowSize - 1) {
+                sums[i - windowSize + 1] = sum;
+            }
+        }
+        return sums;
+    }
+
+    public static double[] rollingSum(double[] values, int windowSize) {
+        double[] sums = new double[windowCount(values.length, windowSize)];
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            if (i >= windowSize) {
+                sum -= values[i - windowSize];
+            }
+            if (i >= windowSize - 1) {
+                sums[i - windowSize + 1] = sum;
+            }
+        }
+        return sums;
+    }
+
+    public static double[] rollingMean(int[] values, int windowSize) {
+        return divide(rollingSum(values, windowSize), windowSize);
+    }
+
+    public static double[] rollingMean(long[] values, int windowSize) {
+        return divide(rollingSum(values, windowSize), windowSize);
+    }
+
+    public static double[] rollingMean(double[] values, int windowSize) {
+        double[] means = rollingSum(values, windowSize);
+        for (int i = 0; i < means.length; i++) {
+            means[i] /= windowSize;
+        }
+        return means;
+    }
+
+    private static double[] divide(long[] sums, int windowSize) {
+        double[] means = new double[sums.length];
+        for (int i = 0; i < sums.length; i++) {
+            means[i] = (double) sums[i] / windowSize;
+        }
+        return means;
+    }
+
+    public static int[] rollingMin(int[] values, int windowSize) {
+        int[] indexes = rollingBest(values.length, windowSize, (i, j) -> values[i] <= values[j]);
+        int[] mins = new int[indexes.length];
+        for (int w = 0; w < indexes.length; w++) {
+            mins[w] = values[indexes[w]];
+        }
+        return mins;
+    }
+
+    public static long[] rollingMin(long[] values, int windowSize) {
+        int[] indexes = rollingBest(values.length, windowSize, (i, j) -> values[i] <= values[j]);
+        long[] mins = new long[indexes.length];
+        for (int w = 0; w < indexes.length; w++) {
+            mins[w] = values[indexes[w]];
+        }
+        return mins;
+    }
+
+    public static double[] rollingMin(double[] values, int windowSize) {
+        int[] indexes = rollingBest(values.length, windowSize, (i, j) -> values[i] <= values[j]);
+        double[] mins = new double[indexes.length];
+        for (int w = 0; w < indexes.length; w++) {
+            mins[w] = values[indexes[w]];
+        }
+        return mins;
+    }
+
+    public static int[] rollingMax(int[] values, int windowSize) {
+        int[] indexes = rollingBest(values.length, windowSize, (i, j) -> values[i] >= values[j]);
+        int[] maxes = new int[indexes.length];
+        for (int w = 0; w < indexes.length; w++) {
+            maxes[w] = values[indexes[w]];
+        }
+        return maxes;
+    }
+
+    public static long[] rollingMax(long[] values, int windowSize) {
+        int[] indexes = rollingBest(values.length, windowSize, (i, j) -> values[i] >= values[j]);
+        long[] maxes = new long[indexes.length];
+        for (int w = 0; w < indexes.length; w++) {
+            maxes[w] = values[indexes[w]];
+        }
+        return maxes;
+    }
+
+    public static double[] rollingMax(double[] values, int windowSize) {
+        int[] indexes = rollingBest(values.length, windowSize, (i, j) -> values[i] >= values[j]);
+        double[] maxes = new double[indexes.length];
+        for (int w = 0; w < indexes.length; w++) {
+            maxes[w] = values[indexes[w]];
+        }
+        return maxes;
+    }
+
+    /**
+     * @return for each window the index of its best value; each index enters and leaves the deque once
+     */
+    private static int[] rollingBest(int length, int windowSize, IndexOrder order) {
+        int[] best = new int[windowCount(length, windowSize)];
+        // deque of candidate indexes in a ring, front is the best of the current window
+        int[] deque = new int[Math.min(length, windowSize) + 2];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < length; i++) {
+            while (tail != head && order.beats(i, deque[(tail - 1 + deque.length) % deque.length])) {
+                tail = (tail - 1 + deque.length) % deque.length;
+            }
+            deque[tail] = i;
+            tail = (tail + 1) % deque.length;
+            if (deque[head] <= i - windowSize) {
+                head = (head + 1) % deque.length;
+            }
+            if (i >= windowSize - 1) {
+                best[i - windowSize + 1] = deque[head];
+            }
+        }
+        return best;
+    }
+
+    private static int windowCount(int length, int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 1, was " + windowSize);
+        }
+        return Math.max(0, length - windowSize + 1);
+    }
+}
@@ -0,0 +1,190 @@
+package com.wd.iterables;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Event time windows: each event is folded into the windows its timestamp falls in as it arrives, and a window is
+ * finished and handed to the sink once the watermark - the latest timestamp seen less the allowed lateness - passes
+ * its end. Only the accumulators of open windows are kept, so memory follows the window size, not the stream.
+ * <p>
+ * Events may arrive out of order by up to the allowed lateness; an event whose windows have all been emitted is
+ * dropped and counted as late. Window bounds are aligned to the epoch, [start, start + size). When the slide is longer
+ * than the size, an event falling between two windows belongs to none; it is dropped but is not late.
+ * <p>
+ * A TimeWindows is a Consumer of events, so it can be fed by forEach over a stream, an IterableBlockingQueue or the
+ * batches of a QueueConsumer. Calls are synchronized and the sink runs on the calling thread.
+ *
+ * @param <T> event
+ * @param <A> collector accumulator
+ * @param <R> per window result
+ */
+public class TimeWindows<T, A, R> implements Consumer<T> {
+
+    private final long sizeMillis;
+    private final long slideMillis;
+    private final ToLongFunction<? super T> timestampMillis;
+    private final Supplier<A> supplier;
+    private final BiConsumer<A, ? super T> accumulator;
+    private final Function<A, R> finisher;
+    private final Consumer<? super Window<R>> sink;
+    private long allowedLatenessMillis;
+
+    private final TreeMap<Long, A> openWindows = new TreeMap<>();
+    private long maxTimestamp = Long.MIN_VALUE;
+    private long watermark = Long.MIN_VALUE;
+    private long lateEvents;
+
+    private TimeWindows(Duration size, Duration slide, ToLongFunction<? super T> timestampMillis,
+                        Collector<? super T, A, R> collector, Consumer<? super Window<R>> sink) {
+        if (size.toMillis() < 1 || slide.toMillis() < 1) {
+            throw new IllegalArgumentException("size and slide must be at least 1ms, were " + size + " and " + slide);
+        }
+        this.sizeMillis = size.toMillis();
+        this.slideMillis = slide.toMillis();
+        this.timestampMillis = timestampMillis;
+        this.supplier = collector.supplier();
+        this.accumulator = collector.accumulator();
+        this.finisher = collector.finisher();
+        this.sink = sink;
+    }
+
+    /**
+     * consecutive windows of the given size that do not overlap
+     * @param size
+     * @param timestampMillis - event time in epoch millis
+     * @param collector - aggregates the events of one window
+     * @param sink - receives each window when it closes
+     */
+    public static <T, A, R> TimeWindows<T, A, R> tumbling(Duration size, ToLongFunction<? super T> timestampMillis,
+                                                          Collector<? super T, A, R> collector, Consumer<? super Window<R>> sink) {
+        return new TimeWindows<>(size, size, timestampMillis, collector, sink);
+    }
+
+    /**
+     * windows of the given size starting every slide, so an event lands in about size / slide windows
+     * @param size
+     * @param slide
+     * @param timestampMillis - event time in epoch millis
+     * @param collector - aggregates the events of one window
+     * @param sink - receives each window when it closes
+     */
+    public static <T, A, R> TimeWindows<T, A, R> sliding(Duration size, Duration slide, ToLongFunction<? super T> timestampMillis,
+                                                         Collector<? super T, A, R> collector, Consumer<? super Window<R>> sink) {
+        return new TimeWindows<>(size, slide, timestampMillis, collector, sink);
+    }
+
+    /**
+     * @param allowedLateness - how far behind the latest event an event may be and still count, zero by default
+     */
+    public synchronized TimeWindows<T, A, R> withAllowedLateness(Duration allowedLateness) {
+        this.allowedLatenessMillis = allowedLateness.toMillis();
+        return this;
+    }
+
+    @Override
+    public synchronized void accept(T event) {
+        long timestamp = timestampMillis.applyAsLong(event);
+        boolean counted = false;
+        boolean late = false;
+        for (long start = Math.floorDiv(timestamp, slideMillis) * slideMillis; start + sizeMillis > timestamp; start -= slideMillis) {
+            if (start + sizeMillis <= watermark) {
+                // this and every earlier window has already been emitted
+                late = true;
+                break;
+            }
+            accumulator.accept(openWindows.computeIfAbsent(start, s -> supplier.get()), event);
+            counted = true;
+        }
+        if (late && !counted) {
+            lateEvents++;
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+            // never behind a flush
+            watermark = Math.max(watermark, maxTimestamp - allowedLatenessMillis);
+            emitUpTo(watermark);
+        }
+    }
+
+    /**
+     * emit every open window, e.g. once the source is done; the windows are closed for good, so events accepted
+     * afterwards are dropped as late rather than opening windows that would be emitted a second time
+     */
+    public synchronized void flush() {
+        watermark = Long.MAX_VALUE;
+        emitUpTo(Long.MAX_VALUE);
+    }
+
+    public synchronized long getLateEvents() {
+        return lateEvents;
+    }
+
+    /**
+     * @return the number of windows holding an accumulator
+     */
+    public synchronized int getOpenWindows() {
+        return openWindows.size();
+    }
+
+    private void emitUpTo(long time) {
+        while (!openWindows.isEmpty() && (time == Long.MAX_VALUE || openWindows.firstKey() + sizeMillis <= time)) {
+            Map.Entry<Long, A> window = openWindows.pollFirstEntry();
+            long start = window.getKey();
+            sink.accept(new Window<>(Instant.ofEpochMilli(start), Instant.ofEpochMilli(start + sizeMillis),
+                    finisher.apply(window.getValue())));
+        }
+    }
+
+    /**
+     * the result of one closed window
+     * @param <R>
+     */
+    public static class Window<R> {
+
+        private final Instant start;
+        private final Instant end;
+        private final R result;
+
+        Window(Instant start, Instant end, R result) {
+            this.start = start;
+            this.end = end;
+            this.result = result;
+        }
+
+        /**
+         * @return inclusive start
+         */
+        public Instant getStart() {
+            return start;
+        }
+
+        /**
+         * @return exclusive end
+         */
+        public Instant getEnd() {
+            return end;
+        }
+
+        public R getResult() {
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Window{" +
+                    "start=" + start +
+                    ", end=" + end +
+                    ", result=" + result +
+                    '}';
+        }
+    }
+}
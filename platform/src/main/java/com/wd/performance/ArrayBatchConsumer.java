@@ -0,0 +1,12 @@
+package com.wd.performance;
+
+/**
+ * receives a batch of primitives as the first length slots of an array. the array is reused for the next batch,
+ * so copy anything that must outlive the call
+ * @param <A> int[], long[] or double[]
+ */
+@FunctionalInterface
+public interface ArrayBatchConsumer<A> {
+
+    void accept(A batch, int length);
+}
@@ -0,0 +1,92 @@
+package com.wd.performance;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * a running queueAndConsumeAsync call - follow its progress, wait for it with a timeout or cancel it
+ */
+public class ConsumeHandle {
+
+    private final CompletableFuture<ConsumeResult> result;
+    private final Runnable canceller;
+    private final LongSupplier produced;
+    private final LongSupplier consumed;
+    private final IntSupplier queueDepth;
+
+    ConsumeHandle(CompletableFuture<ConsumeResult> result, Runnable canceller,
+                  LongSupplier produced, LongSupplier consumed, IntSupplier queueDepth) {
+        this.result = result;
+        this.canceller = canceller;
+        this.produced = produced;
+        this.consumed = consumed;
+        this.queueDepth = queueDepth;
+        // cancelling the future directly stops the run as well
+        result.whenComplete((r, e) -> {
+            if (e instanceof CancellationException) {
+                canceller.run();
+            }
+        });
+    }
+
+    /**
+     * @return completes with the result once the run has finished, cancelled runs included
+     */
+    public CompletableFuture<ConsumeResult> future() {
+        return result;
+    }
+
+    /**
+     * stop the producer and discard the queued elements; batches already handed to the consumer finish,
+     * after which the future completes with a cancelled result
+     */
+    public void cancel() {
+        canceller.run();
+    }
+
+    /**
+     * @param timeout
+     * @return the result, or empty if the run did not finish in time
+     */
+    public Optional<ConsumeResult> await(Duration timeout) {
+        try {
+            return Optional.of(result.get(timeout.toNanos(), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for consume result", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("consume run failed", e.getCause());
+        }
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * @return elements the producer has queued so far
+     */
+    public long getProduced() {
+        return produced.getAsLong();
+    }
+
+    /**
+     * @return elements consumed successfully so far
+     */
+    public long getConsumed() {
+        return consumed.getAsLong();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+}
@@ -0,0 +1,142 @@
+package com.wd.performance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * summary of a queueAndConsume run - how many elements and batches each consumer worker handled,
+ * and what failed along the way
+ */
+public class ConsumeResult {
+
+    private final List<Long> consumedPerWorker;
+    private final long batches;
+    private final long failedBatches;
+    private final long failedElements;
+    private final long deadLettered;
+    private final long retries;
+    private final boolean cancelled;
+    private final Throwable consumerFailure;
+    private final Throwable producerFailure;
+
+    private ConsumeResult(List<Long> consumedPerWorker, Tally tally) {
+        this.consumedPerWorker = Collections.unmodifiableList(new ArrayList<>(consumedPerWorker));
+        this.batches = tally.batches.get();
+        this.failedBatches = tally.failedBatches.get();
+        this.failedElements = tally.failedElements.get();
+        this.deadLettered = tally.deadLettered.get();
+        this.retries = tally.retries.get();
+        this.cancelled = tally.cancelled;
+        this.consumerFailure = tally.consumerFailure.get();
+        this.producerFailure = tally.producerFailure.get();
+    }
+
+    /**
+     * @return elements successfully consumed by each worker, the calling thread first
+     */
+    public List<Long> getConsumedPerWorker() {
+        return consumedPerWorker;
+    }
+
+    public long getConsumed() {
+        return consumedPerWorker.stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return batches successfully consumed, including ones that needed retries
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return batches that exhausted their retries, whether dead lettered or not
+     */
+    public long getFailedBatches() {
+        return failedBatches;
+    }
+
+    public long getFailedElements() {
+        return failedElements;
+    }
+
+    /**
+     * @return elements handed to the dead letter consumer
+     */
+    public long getDeadLettered() {
+        return deadLettered;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return true if consumption stopped early and queued elements were discarded
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the first consumer exception that was not recovered by retrying
+     */
+    public Optional<Throwable> getConsumerFailure() {
+        return Optional.ofNullable(consumerFailure);
+    }
+
+    /**
+     * @return the exception that stopped the source stream, if any
+     */
+    public Optional<Throwable> getProducerFailure() {
+        return Optional.ofNullable(producerFailure);
+    }
+
+    /**
+     * @return true if every element was produced and consumed without failures or dead lettering
+     */
+    public boolean isSuccessful() {
+        return !cancelled && failedBatches == 0 && producerFailure == null;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsumeResult{" +
+                "consumedPerWorker=" + consumedPerWorker +
+                ", batches=" + batches +
+                ", failedBatches=" + failedBatches +
+                ", failedElements=" + failedElements +
+                ", deadLettered=" + deadLettered +
+                ", retries=" + retries +
+                ", cancelled=" + cancelled +
+                ", consumerFailure=" + consumerFailure +
+                ", producerFailure=" + producerFailure +
+                '}';
+    }
+
+    /**
+     * counters shared by the workers of one run
+     */
+    static class Tally {
+
+        final LongAdder produced = new LongAdder();
+        final AtomicLong consumed = new AtomicLong();
+        final AtomicLong batches = new AtomicLong();
+        final AtomicLong failedBatches = new AtomicLong();
+        final AtomicLong failedElements = new AtomicLong();
+        final AtomicLong deadLettered = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicReference<Throwable> consumerFailure = new AtomicReference<>();
+        final AtomicReference<Throwable> producerFailure = new AtomicReference<>();
+        volatile boolean cancelled;
+
+        ConsumeResult toResult(List<Long> consumedPerWorker) {
+            return new ConsumeResult(consumedPerWorker, this);
+        }
+    }
+}
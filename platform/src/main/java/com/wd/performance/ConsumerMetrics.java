@@ -0,0 +1,18 @@
+package com.wd.performance;
+
+import com.wd.iterables.QueueMetrics;
+
+/**
+ * QueueMetrics plus the batch level events of a QueueConsumer
+ */
+public interface ConsumerMetrics extends QueueMetrics {
+
+    ConsumerMetrics NOOP = new ConsumerMetrics() {};
+
+    /**
+     * @param size - elements in the batch
+     * @param nanos - time spent in the batch consumer, retries and backoff included
+     * @param succeeded - false if the batch exhausted its retries
+     */
+    default void onBatch(int size, long nanos, boolean succeeded) {}
+}
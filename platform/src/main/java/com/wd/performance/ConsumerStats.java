@@ -0,0 +1,138 @@
+package com.wd.performance;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConsumerMetrics that keeps running totals, rates since creation and a batch latency histogram.
+ * the histogram uses power of two nanosecond buckets, so percentiles are accurate to within a factor of two
+ */
+public class ConsumerStats implements ConsumerMetrics {
+
+    private static final int BUCKETS = 64;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dequeued = new LongAdder();
+    private final LongAdder producerBlockedNanos = new LongAdder();
+    private final LongAdder consumerIdleNanos = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final AtomicLongArray batchLatencies = new AtomicLongArray(BUCKETS);
+    private volatile int depth;
+
+    @Override
+    public void onEnqueue(int depth) {
+        enqueued.increment();
+        this.depth = depth;
+    }
+
+    @Override
+    public void onDequeue(int depth) {
+        dequeued.increment();
+        this.depth = depth;
+    }
+
+    @Override
+    public void onProducerBlocked(long nanos) {
+        producerBlockedNanos.add(nanos);
+    }
+
+    @Override
+    public void onConsumerIdle(long nanos) {
+        consumerIdleNanos.add(nanos);
+    }
+
+    @Override
+    public void onBatch(int size, long nanos, boolean succeeded) {
+        batches.increment();
+        if (!succeeded) {
+            failedBatches.increment();
+        }
+        batchLatencies.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+    }
+
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    public long getDequeued() {
+        return dequeued.sum();
+    }
+
+    /**
+     * @return elements added per second since these stats were created
+     */
+    public double getEnqueueRate() {
+        return perSecond(getEnqueued());
+    }
+
+    /**
+     * @return elements taken per second since these stats were created
+     */
+    public double getDequeueRate() {
+        return perSecond(getDequeued());
+    }
+
+    /**
+     * @return queue depth at the last add or take
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getProducerBlockedNanos() {
+        return producerBlockedNanos.sum();
+    }
+
+    public long getConsumerIdleNanos() {
+        return consumerIdleNanos.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * @param percentile - between 0 and 1
+     * @return upper bound in nanos of the bucket holding that percentile of batch latencies, 0 if there were no batches
+     */
+    public long getBatchLatencyPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += batchLatencies.get(i);
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += batchLatencies.get(i);
+            if (seen >= rank && seen > 0) {
+                return (1L << i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    private double perSecond(long count) {
+        long elapsed = Math.max(System.nanoTime() - startNanos, 1);
+        return count * 1_000_000_000d / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsumerStats{" +
+                "enqueued=" + getEnqueued() +
+                ", dequeued=" + getDequeued() +
+                ", depth=" + depth +
+                ", producerBlockedNanos=" + getProducerBlockedNanos() +
+                ", consumerIdleNanos=" + getConsumerIdleNanos() +
+                ", batches=" + getBatches() +
+                ", failedBatches=" + getFailedBatches() +
+                ", batchLatencyP99=" + getBatchLatencyPercentile(0.99) +
+                '}';
+    }
+}
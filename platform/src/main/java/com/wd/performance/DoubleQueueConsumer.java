@@ -0,0 +1,62 @@
+package com.wd.performance;
+
+import com.wd.iterables.DoubleBlockingQueue;
+import com.wd.iterables.PrimitiveBlockingQueue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+
+/**
+ * PrimitiveQueueConsumer for DoubleStream sources, handing batches to the consumer as a reused double[]
+ */
+public class DoubleQueueConsumer extends PrimitiveQueueConsumer<double[], DoubleStream, Double> {
+
+    public DoubleQueueConsumer(ArrayBatchConsumer<double[]> consumer) {
+        this(consumer, QueueConsumerConfig.DEFAULT);
+    }
+
+    public DoubleQueueConsumer(ArrayBatchConsumer<double[]> consumer, QueueConsumerConfig config) {
+        this(consumer, config, FailurePolicy.failFast());
+    }
+
+    /**
+     * @param consumer
+     * @param config
+     * @param failurePolicy - what to do when the consumer throws; a dead letter consumer gets the batch boxed
+     */
+    public DoubleQueueConsumer(ArrayBatchConsumer<double[]> consumer, QueueConsumerConfig config, FailurePolicy<Double> failurePolicy) {
+        super(consumer, config, failurePolicy);
+    }
+
+    @Override
+    protected PrimitiveBlockingQueue<double[]> newQueue(int capacity) {
+        return new DoubleBlockingQueue(capacity);
+    }
+
+    @Override
+    protected double[] newArray(int length) {
+        return new double[length];
+    }
+
+    @Override
+    protected List<Double> boxed(double[] batch, int length) {
+        return Arrays.stream(batch, 0, length).boxed().collect(Collectors.toList());
+    }
+
+    @Override
+    protected void produce(DoubleStream sourceStream, double[] chunk, PrimitiveBlockingQueue<double[]> queue) {
+        PrimitiveIterator.OfDouble values = sourceStream.iterator();
+        int length = 0;
+        while (values.hasNext()) {
+            chunk[length++] = values.nextDouble();
+            if (length == chunk.length) {
+                queue.addAll(chunk, 0, length);
+                length = 0;
+            }
+        }
+        queue.addAll(chunk, 0, length);
+    }
+}
@@ -0,0 +1,17 @@
+package com.wd.performance;
+
+/**
+ * a RingPipeline stage callback. The event is a ring slot that is reused once every stage is past it,
+ * so copy anything that must outlive the call
+ * @param <E>
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+
+    /**
+     * @param event
+     * @param sequence - position of the event in the ring
+     * @param endOfBatch - true for the last event currently available, a good moment to flush
+     */
+    void onEvent(E event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,77 @@
+package com.wd.performance;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * what QueueConsumer does when the batch consumer throws:
+ * the batch is retried up to maxAttempts with a doubling backoff, then either handed to a dead letter consumer
+ * or, when there is none, consumption fails fast - the producer is cancelled and the queue is discarded
+ * @param <T>
+ */
+public class FailurePolicy<T> {
+
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Consumer<? super List<T>> deadLetterConsumer;
+
+    private FailurePolicy(int maxAttempts, Duration backoff, Consumer<? super List<T>> deadLetterConsumer) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1, was " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.deadLetterConsumer = deadLetterConsumer;
+    }
+
+    /**
+     * stop everything on the first failed batch
+     */
+    public static <T> FailurePolicy<T> failFast() {
+        return new FailurePolicy<>(1, Duration.ZERO, null);
+    }
+
+    /**
+     * try a failing batch up to maxAttempts times, waiting backoff, 2*backoff, 4*backoff... between attempts,
+     * then fail fast
+     * @param maxAttempts - total attempts including the first one
+     * @param backoff - wait before the first retry
+     */
+    public static <T> FailurePolicy<T> retry(int maxAttempts, Duration backoff) {
+        return new FailurePolicy<>(maxAttempts, backoff, null);
+    }
+
+    /**
+     * hand a failing batch straight to the dead letter consumer and carry on
+     * @param deadLetterConsumer
+     */
+    public static <T> FailurePolicy<T> deadLetter(Consumer<? super List<T>> deadLetterConsumer) {
+        return new FailurePolicy<>(1, Duration.ZERO, deadLetterConsumer);
+    }
+
+    /**
+     * keep this policy's retries but route batches that exhaust them to the dead letter consumer instead of failing fast
+     * @param deadLetterConsumer
+     */
+    public FailurePolicy<T> thenDeadLetter(Consumer<? super List<T>> deadLetterConsumer) {
+        return new FailurePolicy<>(maxAttempts, backoff, deadLetterConsumer);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt - the attempt that just failed, starting at 1
+     * @return how long to wait before the next attempt
+     */
+    public Duration backoffAfter(int attempt) {
+        return backoff.multipliedBy(1L << Math.min(attempt - 1, 30));
+    }
+
+    public Optional<Consumer<? super List<T>>> getDeadLetterConsumer() {
+        return Optional.ofNullable(deadLetterConsumer);
+    }
+}
@@ -0,0 +1,62 @@
+package com.wd.performance;
+
+import com.wd.iterables.IntBlockingQueue;
+import com.wd.iterables.PrimitiveBlockingQueue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * PrimitiveQueueConsumer for IntStream sources, handing batches to the consumer as a reused int[]
+ */
+public class IntQueueConsumer extends PrimitiveQueueConsumer<int[], IntStream, Integer> {
+
+    public IntQueueConsumer(ArrayBatchConsumer<int[]> consumer) {
+        this(consumer, QueueConsumerConfig.DEFAULT);
+    }
+
+    public IntQueueConsumer(ArrayBatchConsumer<int[]> consumer, QueueConsumerConfig config) {
+        this(consumer, config, FailurePolicy.failFast());
+    }
+
+    /**
+     * @param consumer
+     * @param config
+     * @param failurePolicy - what to do when the consumer throws; a dead letter consumer gets the batch boxed
+     */
+    public IntQueueConsumer(ArrayBatchConsumer<int[]> consumer, QueueConsumerConfig config, FailurePolicy<Integer> failurePolicy) {
+        super(consumer, config, failurePolicy);
+    }
+
+    @Override
+    protected PrimitiveBlockingQueue<int[]> newQueue(int capacity) {
+        return new IntBlockingQueue(capacity);
+    }
+
+    @Override
+    protected int[] newArray(int length) {
+        return new int[length];
+    }
+
+    @Override
+    protected List<Integer> boxed(int[] batch, int length) {
+        return Arrays.stream(batch, 0, length).boxed().collect(Collectors.toList());
+    }
+
+    @Override
+    protected void produce(IntStream sourceStream, int[] chunk, PrimitiveBlockingQueue<int[]> queue) {
+        PrimitiveIterator.OfInt values = sourceStream.iterator();
+        int length = 0;
+        while (values.hasNext()) {
+            chunk[length++] = values.nextInt();
+            if (length == chunk.length) {
+                queue.addAll(chunk, 0, length);
+                length = 0;
+            }
+        }
+        queue.addAll(chunk, 0, length);
+    }
+}
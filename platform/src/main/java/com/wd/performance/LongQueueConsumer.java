@@ -0,0 +1,62 @@
+package com.wd.performance;
+
+import com.wd.iterables.LongBlockingQueue;
+import com.wd.iterables.PrimitiveBlockingQueue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * PrimitiveQueueConsumer for LongStream sources, handing batches to the consumer as a reused long[]
+ */
+public class LongQueueConsumer extends PrimitiveQueueConsumer<long[], LongStream, Long> {
+
+    public LongQueueConsumer(ArrayBatchConsumer<long[]> consumer) {
+        this(consumer, QueueConsumerConfig.DEFAULT);
+    }
+
+    public LongQueueConsumer(ArrayBatchConsumer<long[]> consumer, QueueConsumerConfig config) {
+        this(consumer, config, FailurePolicy.failFast());
+    }
+
+    /**
+     * @param consumer
+     * @param config
+     * @param failurePolicy - what to do when the consumer throws; a dead letter consumer gets the batch boxed
+     */
+    public LongQueueConsumer(ArrayBatchConsumer<long[]> consumer, QueueConsumerConfig config, FailurePolicy<Long> failurePolicy) {
+        super(consumer, config, failurePolicy);
+    }
+
+    @Override
+    protected PrimitiveBlockingQueue<long[]> newQueue(int capacity) {
+        return new LongBlockingQueue(capacity);
+    }
+
+    @Override
+    protected long[] newArray(int length) {
+        return new long[length];
+    }
+
+    @Override
+    protected List<Long> boxed(long[] batch, int length) {
+        return Arrays.stream(batch, 0, length).boxed().collect(Collectors.toList());
+    }
+
+    @Override
+    protected void produce(LongStream sourceStream, long[] chunk, PrimitiveBlockingQueue<long[]> queue) {
+        PrimitiveIterator.OfLong values = sourceStream.iterator();
+        int length = 0;
+        while (values.hasNext()) {
+            chunk[length++] = values.nextLong();
+            if (length == chunk.length) {
+                queue.addAll(chunk, 0, length);
+                length = 0;
+            }
+        }
+        queue.addAll(chunk, 0, length);
+    }
+}
@@ -0,0 +1,250 @@
+package com.wd.performance;
+
+import com.wd.iterables.IterableBlockingQueue;
+import com.wd.iterables.QueueMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Transforms batches of a stream on several workers but hands the results to a sequential sink in source order.
+ * <p>
+ * Batches are numbered as they are taken from the queue. A finished result waits in a reorder buffer until every
+ * earlier batch has been delivered, and a worker does not start a batch more than reorderWindow batches ahead of
+ * the next one due, so memory stays bounded by the queue capacity plus reorderWindow results.
+ * The sink is called by one thread at a time.
+ * <p>
+ * A failing transform or sink stops the pipeline: the producer is cancelled and undelivered results are dropped.
+ *
+ * @param <T> source element
+ * @param <R> per batch result
+ */
+public class OrderedPipeline<T, R> {
+
+    private static Logger logger = LogManager.getLogger(OrderedPipeline.class);
+
+    private final Function<? super List<T>, ? extends R> transform;
+    private final Consumer<? super R> sink;
+    private final QueueConsumerConfig config;
+    private final int reorderWindow;
+
+    public OrderedPipeline(Function<? super List<T>, ? extends R> transform, Consumer<? super R> sink, QueueConsumerConfig config) {
+        this(transform, sink, config, 2 * config.getParallelism());
+    }
+
+    /**
+     * @param transform - called concurrently with batches of up to config batch size elements
+     * @param sink - called sequentially with the transform results in source order
+     * @param config
+     * @param reorderWindow - how many batches workers may run ahead of the next one due for delivery
+     */
+    public OrderedPipeline(Function<? super List<T>, ? extends R> transform, Consumer<? super R> sink,
+                           QueueConsumerConfig config, int reorderWindow) {
+        if (reorderWindow < 1) {
+            throw new IllegalArgumentException("reorderWindow must be at least 1, was " + reorderWindow);
+        }
+        this.transform = transform;
+        this.sink = sink;
+        this.config = config;
+        this.reorderWindow = reorderWindow;
+    }
+
+    public ConsumeResult process(Stream<T> sourceStream) {
+        return process(sourceStream, QueueConsumer.DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * run the producer and all but one of the workers on the executor, the calling thread being the other worker
+     * @param sourceStream
+     * @param executor
+     * @return per worker counts of elements delivered to the sink; whichever worker finds the next result due
+     * delivers it, so the counts say who called the sink rather than who transformed the batch
+     */
+    public ConsumeResult process(Stream<T> sourceStream, ExecutorService executor) {
+        Run run = new Run();
+        Future<?> producer = Workers.startProducer(executor, sourceStream,
+                () -> sourceStream.forEach(run.queue::add), run.queue::done, run.tally);
+
+        List<Long> deliveredPerWorker = Workers.runWorkers(config.getParallelism(), run::work, executor, run::cancel);
+        if (run.tally.cancelled) {
+            producer.cancel(true);
+        }
+        return run.tally.toResult(deliveredPerWorker);
+    }
+
+    /**
+     * state of one process call
+     */
+    private class Run {
+
+        final IterableBlockingQueue<T> queue = new IterableBlockingQueue<T>(config.getQueueCapacity())
+                .withMetrics(config.getMetrics() == ConsumerMetrics.NOOP ? QueueMetrics.NOOP : config.getMetrics());
+        final ConsumeResult.Tally tally = new ConsumeResult.Tally();
+
+        private final Object batchLock = new Object();
+        private long nextSequence;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition windowMoved = lock.newCondition();
+        private final Object[] results = new Object[reorderWindow];
+        private final int[] sizes = new int[reorderWindow];
+        private final boolean[] ready = new boolean[reorderWindow];
+        private long nextToDeliver;
+        private boolean delivering;
+
+        /**
+         * @return elements this worker delivered to the sink
+         */
+        long work() {
+            long delivered = 0;
+            while (true) {
+                List<T> batch = new ArrayList<>(config.getBatchSize());
+                long sequence;
+                synchronized (batchLock) {
+                    if (fillBatch(batch) == 0) {
+                        return delivered;
+                    }
+                    sequence = nextSequence++;
+                }
+                if (!awaitWindow(sequence)) {
+                    return delivered;
+                }
+                long startedAt = config.getMetrics() != ConsumerMetrics.NOOP ? System.nanoTime() : 0;
+                R result;
+                try {
+                    result = transform.apply(batch);
+                } catch (RuntimeException e) {
+                    if (startedAt != 0) {
+                        config.getMetrics().onBatch(batch.size(), System.nanoTime() - startedAt, false);
+                    }
+                    fail(batch.size(), e);
+                    return delivered;
+                }
+                if (startedAt != 0) {
+                    config.getMetrics().onBatch(batch.size(), System.nanoTime() - startedAt, true);
+                }
+                delivered += complete(sequence, batch.size(), result);
+            }
+        }
+
+        private int fillBatch(List<T> batch) {
+            return config.getLinger()
+                    .map(linger -> queue.drainTo(batch, config.getBatchSize(), linger))
+                    .orElseGet(() -> queue.drainTo(batch, config.getBatchSize()));
+        }
+
+        /**
+         * @return false if the pipeline was cancelled while waiting
+         */
+        private boolean awaitWindow(long sequence) {
+            lock.lock();
+            try {
+                while (sequence >= nextToDeliver + reorderWindow && !tally.cancelled) {
+                    windowMoved.await();
+                }
+                return !tally.cancelled;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for the reorder window", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return elements delivered by this call, 0 if another worker is delivering
+         */
+        private long complete(long sequence, int size, R result) {
+            lock.lock();
+            try {
+                int slot = (int) (sequence % reorderWindow);
+                results[slot] = result;
+                sizes[slot] = size;
+                ready[slot] = true;
+                if (delivering) {
+                    // whoever is delivering will pick this one up when it gets there
+                    return 0;
+                }
+                delivering = true;
+            } finally {
+                lock.unlock();
+            }
+            return deliverReady();
+        }
+
+        @SuppressWarnings("unchecked")
+        private long deliverReady() {
+            long delivered = 0;
+            while (true) {
+                R result;
+                int size;
+                lock.lock();
+                try {
+                    int slot = (int) (nextToDeliver % reorderWindow);
+                    if (!ready[slot] || tally.cancelled) {
+                        delivering = false;
+                        return delivered;
+                    }
+                    result = (R) results[slot];
+                    size = sizes[slot];
+                    results[slot] = null;
+                    ready[slot] = false;
+                    nextToDeliver++;
+                    windowMoved.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    sink.accept(result);
+                } catch (RuntimeException e) {
+                    // cancel before handing back delivery so no other worker calls the sink again
+                    fail(size, e);
+                    lock.lock();
+                    try {
+                        delivering = false;
+                    } finally {
+                        lock.unlock();
+                    }
+                    return delivered;
+                }
+                delivered += size;
+                tally.consumed.addAndGet(size);
+                tally.batches.incrementAndGet();
+            }
+        }
+
+        /**
+         * @param size - elements in the batch whose transform or delivery failed
+         */
+        private void fail(int size, RuntimeException e) {
+            tally.failedBatches.incrementAndGet();
+            tally.failedElements.addAndGet(size);
+            tally.consumerFailure.compareAndSet(null, e);
+            logger.error("ordered pipeline failed, cancelling: ", e);
+            cancel();
+        }
+
+        /**
+         * stop every worker, including ones waiting for the reorder window, and discard what is queued
+         */
+        void cancel() {
+            lock.lock();
+            try {
+                tally.cancelled = true;
+                windowMoved.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            queue.cancel();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.wd.performance;
+
+import com.wd.iterables.PrimitiveBlockingQueue;
+import com.wd.iterables.QueueMetrics;
+import com.wd.util.ThreadUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.BaseStream;
+
+/**
+ * QueueConsumer for primitive streams: values travel through a PrimitiveBlockingQueue ring and reach the consumer
+ * as a reused primitive array, so nothing is boxed or allocated per element or per batch.
+ * <p>
+ * Applies the whole config like QueueConsumer does; an unbounded capacity gets a ring of 16 batches.
+ * A batch that exhausts the failure policy's retries is boxed into a List for its dead letter consumer,
+ * or when there is none fails fast - the producer is cancelled and the queued values are discarded.
+ *
+ * @param <A> primitive array type
+ * @param <S> primitive stream type
+ * @param <B> boxed value type, what the dead letter consumer is handed
+ */
+public abstract class PrimitiveQueueConsumer<A, S extends BaseStream<B, S>, B> {
+
+    private static Logger logger = LogManager.getLogger(PrimitiveQueueConsumer.class);
+
+    private final ArrayBatchConsumer<A> consumer;
+    private final QueueConsumerConfig config;
+    private final FailurePolicy<B> failurePolicy;
+
+    protected PrimitiveQueueConsumer(ArrayBatchConsumer<A> consumer, QueueConsumerConfig config, FailurePolicy<B> failurePolicy) {
+        this.consumer = consumer;
+        this.config = config;
+        this.failurePolicy = failurePolicy;
+    }
+
+    protected abstract PrimitiveBlockingQueue<A> newQueue(int capacity);
+
+    protected abstract A newArray(int length);
+
+    /**
+     * a copy of the batch as boxed values, only made for the dead letter consumer since the batch array is reused
+     */
+    protected abstract List<B> boxed(A batch, int length);
+
+    /**
+     * copy the stream into the queue a chunk at a time, adding each chunk as soon as it is full
+     */
+    protected abstract void produce(S sourceStream, A chunk, PrimitiveBlockingQueue<A> queue);
+
+    public ConsumeResult queueAndConsume(S sourceStream) {
+        return queueAndConsume(sourceStream, QueueConsumer.DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * run the producer and all but one worker on the executor, the calling thread being the other worker
+     * @param sourceStream
+     * @param executor
+     * @return per worker consumed counts
+     */
+    public ConsumeResult queueAndConsume(S sourceStream, ExecutorService executor) {
+        int capacity = config.getQueueCapacity() == Integer.MAX_VALUE ? 16 * config.getBatchSize() : config.getQueueCapacity();
+        PrimitiveBlockingQueue<A> queue = newQueue(capacity)
+                .withMetrics(config.getMetrics() == ConsumerMetrics.NOOP ? QueueMetrics.NOOP : config.getMetrics());
+        ConsumeResult.Tally tally = new ConsumeResult.Tally();
+
+        // with a linger each value is queued as it arrives, so a slow source is flushed by the consumer's linger
+        // rather than held back until the producer fills a chunk; batching is left to the consumer
+        int chunkSize = config.getLinger().isPresent() ? 1 : Math.min(config.getBatchSize(), capacity);
+        Future<?> producer = Workers.startProducer(executor, sourceStream,
+                () -> produce(sourceStream, newArray(chunkSize), queue), queue::done, tally);
+
+        List<Long> consumedPerWorker = Workers.runWorkers(config.getParallelism(), () -> drain(queue, tally), executor,
+                () -> cancel(queue, tally));
+        if (tally.cancelled) {
+            producer.cancel(true);
+        }
+        return tally.toResult(consumedPerWorker);
+    }
+
+    private long drain(PrimitiveBlockingQueue<A> queue, ConsumeResult.Tally tally) {
+        long consumed = 0;
+        A batch = newArray(config.getBatchSize());
+        ConsumerMetrics metrics = config.getMetrics();
+        int length;
+        while ((length = fillBatch(queue, batch)) > 0) {
+            long startedAt = metrics != ConsumerMetrics.NOOP ? System.nanoTime() : 0;
+            boolean succeeded = consumeWithRetries(queue, batch, length, tally);
+            if (startedAt != 0) {
+                metrics.onBatch(length, System.nanoTime() - startedAt, succeeded);
+            }
+            if (succeeded) {
+                consumed += length;
+                tally.consumed.addAndGet(length);
+                tally.batches.incrementAndGet();
+            } else if (!deadLetter(queue, batch, length, tally)) {
+                break;
+            }
+        }
+        return consumed;
+    }
+
+    private int fillBatch(PrimitiveBlockingQueue<A> queue, A batch) {
+        return config.getLinger()
+                .map(linger -> queue.drainTo(batch, config.getBatchSize(), linger))
+                .orElseGet(() -> queue.drainTo(batch, config.getBatchSize()));
+    }
+
+    private boolean consumeWithRetries(PrimitiveBlockingQueue<A> queue, A batch, int length, ConsumeResult.Tally tally) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                consumer.accept(batch, length);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= failurePolicy.getMaxAttempts() || queue.isCancelled()) {
+                    tally.failedBatches.incrementAndGet();
+                    tally.failedElements.addAndGet(length);
+                    tally.consumerFailure.compareAndSet(null, e);
+                    logger.warn("batch of {} failed after {} attempts: ", length, attempt, e);
+                    return false;
+                }
+                tally.retries.incrementAndGet();
+                ThreadUtils.sleep(failurePolicy.backoffAfter(attempt).toMillis());
+            }
+        }
+    }
+
+    /**
+     * @return true if consumption can carry on, false if it failed fast and the queue was cancelled
+     */
+    private boolean deadLetter(PrimitiveBlockingQueue<A> queue, A batch, int length, ConsumeResult.Tally tally) {
+        Optional<Consumer<? super List<B>>> deadLetterConsumer = failurePolicy.getDeadLetterConsumer();
+        if (deadLetterConsumer.isPresent() && !queue.isCancelled()) {
+            try {
+                deadLetterConsumer.get().accept(boxed(batch, length));
+                tally.deadLettered.addAndGet(length);
+                return true;
+            } catch (RuntimeException e) {
+                logger.error("dead letter consumer failed, cancelling: ", e);
+            }
+        }
+        cancel(queue, tally);
+        return false;
+    }
+
+    private void cancel(PrimitiveBlockingQueue<A> queue, ConsumeResult.Tally tally) {
+        tally.cancelled = true;
+        queue.cancel();
+    }
+}
@@ -1,63 +1,251 @@
 package com.wd.performance;
 
-import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
 import com.wd.iterables.IterableBlockingQueue;
+import com.wd.iterables.QueueMetrics;
+import com.wd.util.ThreadUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Iterator;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class QueueConsumer<T> {
 
-    private Consumer<List> consumer;
-    final IterableBlockingQueue<T> queue = new IterableBlockingQueue<>();
+    private final Consumer<? super List<T>> consumer;
+    private final QueueConsumerConfig config;
+    private final FailurePolicy<T> failurePolicy;
     private static Logger logger = LogManager.getLogger(QueueConsumer.class);
-    private static Integer CONSUMING_BATCH_SIZE = 100;
+    static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(ThreadUtils.daemonThreadFactory("queue-consumer"));
 
-    public QueueConsumer(Consumer<List> queueConsumer) {
+    public QueueConsumer(Consumer<? super List<T>> queueConsumer) {
+        this(queueConsumer, QueueConsumerConfig.DEFAULT);
+    }
+
+    public QueueConsumer(Consumer<? super List<T>> queueConsumer, Integer consumingBatchSize) {
+        this(queueConsumer, new QueueConsumerConfig.Builder().withBatchSize(consumingBatchSize).build());
+    }
+
+    /**
+     * @param queueConsumer
+     * @param consumingBatchSize
+     * @param queueCapacity - the producer blocks once this many elements are waiting to be consumed
+     */
+    public QueueConsumer(Consumer<? super List<T>> queueConsumer, Integer consumingBatchSize, int queueCapacity) {
+        this(queueConsumer, new QueueConsumerConfig.Builder()
+                .withBatchSize(consumingBatchSize)
+                .withQueueCapacity(queueCapacity).build());
+    }
+
+    /**
+     * @param queueConsumer
+     * @param consumingBatchSize
+     * @param linger - a partial batch is handed to the consumer once its first element has waited this long
+     */
+    public QueueConsumer(Consumer<? super List<T>> queueConsumer, Integer consumingBatchSize, Duration linger) {
+        this(queueConsumer, new QueueConsumerConfig.Builder()
+                .withBatchSize(consumingBatchSize)
+                .withLinger(linger).build());
+    }
+
+    public QueueConsumer(Consumer<? super List<T>> queueConsumer, QueueConsumerConfig config) {
+        this(queueConsumer, config, FailurePolicy.failFast());
+    }
+
+    /**
+     * @param queueConsumer
+     * @param config
+     * @param failurePolicy - what to do when the batch consumer throws, FailurePolicy.failFast() by default
+     */
+    public QueueConsumer(Consumer<? super List<T>> queueConsumer, QueueConsumerConfig config, FailurePolicy<T> failurePolicy) {
         this.consumer = queueConsumer;
+        this.config = config;
+        this.failurePolicy = failurePolicy;
     }
 
-    public QueueConsumer(Consumer<List> queueConsumer, Integer consumingBatchSize) {
-        this(queueConsumer);
-        this.CONSUMING_BATCH_SIZE = consumingBatchSize;
+    /**
+     * queue and consume with the parallelism of this consumer's config
+     * @param sourceStream
+     * @return per worker consumed counts
+     */
+    public ConsumeResult queueAndConsume(Stream<T> sourceStream) {
+        return queueAndConsume(sourceStream, config.getParallelism());
     }
 
-    public void queueAndConsume(Stream<T> sourceStream) {
+    /**
+     * produce the stream into the queue on a background thread while parallelism workers drain it in batches
+     * the calling thread is used as one of the workers; returns once the producer is done and the queue is empty
+     * @param sourceStream
+     * @param parallelism - number of consumer workers, each calling the batch consumer concurrently
+     * @return per worker consumed counts
+     */
+    public ConsumeResult queueAndConsume(Stream<T> sourceStream, int parallelism) {
+        return queueAndConsume(sourceStream, parallelism, DEFAULT_EXECUTOR);
+    }
 
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        AtomicInteger counter = new AtomicInteger(1);
-        Future future = executor.submit(() -> {
-            try {
-                sourceStream.forEach(e -> queueElement(counter.getAndIncrement(), e));
-            } catch (RuntimeException e) {
-                logger.info("consume exception: ", e);
-            } finally {
-                sourceStream.close();
-                queue.done();
-            }
-        });
+    /**
+     * same as queueAndConsume(sourceStream, parallelism) but runs the producer and the extra workers on the given executor,
+     * which is left running afterwards. pass ThreadUtils.lightweightExecutor() to run them on virtual threads.
+     * the executor must be able to run parallelism tasks at once for all workers to make progress together
+     * @param sourceStream
+     * @param parallelism
+     * @param executor
+     * @return per worker consumed counts
+     */
+    public ConsumeResult queueAndConsume(Stream<T> sourceStream, int parallelism, ExecutorService executor) {
+        requirePositive(parallelism);
+        Run run = new Run();
+        run.startProducer(sourceStream, executor);
+        return run.finish(Workers.runWorkers(parallelism, run::drain, executor, run::cancel));
+    }
+
+    /**
+     * start queueing and consuming with the parallelism of this consumer's config without blocking the caller
+     * @param sourceStream
+     * @return a handle to follow, await or cancel the run
+     */
+    public ConsumeHandle queueAndConsumeAsync(Stream<T> sourceStream) {
+        return queueAndConsumeAsync(sourceStream, DEFAULT_EXECUTOR);
+    }
 
-        executor.shutdown();
-        Iterator<T> queueIterator = queue.iterator();
+    /**
+     * start queueing and consuming without blocking the caller; the producer and every worker run on the executor
+     * @param sourceStream
+     * @param executor
+     * @return a handle to follow, await or cancel the run
+     */
+    public ConsumeHandle queueAndConsumeAsync(Stream<T> sourceStream, ExecutorService executor) {
+        int parallelism = config.getParallelism();
+        Run run = new Run();
+        run.startProducer(sourceStream, executor);
 
-        while(!future.isDone() || queueIterator.hasNext()){
-            consumer.accept(Lists.newArrayList(Iterators.limit(queueIterator, CONSUMING_BATCH_SIZE)));
+        List<CompletableFuture<Long>> workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(CompletableFuture.supplyAsync(run::drain, executor));
         }
+        CompletableFuture<ConsumeResult> result = CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> run.finish(workers.stream().map(CompletableFuture::join).collect(Collectors.toList())));
+        return new ConsumeHandle(result, run::cancel, run.tally.produced::sum, run.tally.consumed::get, run.queue::size);
     }
 
-    private void queueElement(Integer counter, T t) {
-        queue.add(t);
-        if(counter % CONSUMING_BATCH_SIZE == 0) {
-            logger.info(counter + " ads added to queue. queue size=" + queue.size());
+    private static void requirePositive(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, was " + parallelism);
+        }
+    }
+
+    /**
+     * state of one queueAndConsume call
+     */
+    private class Run {
+
+        final IterableBlockingQueue<T> queue = new IterableBlockingQueue<T>(config.getQueueCapacity())
+                .withMetrics(config.getMetrics() == ConsumerMetrics.NOOP ? QueueMetrics.NOOP : config.getMetrics());
+        final ConsumeResult.Tally tally = new ConsumeResult.Tally();
+        private volatile Future<?> producer;
+
+        void startProducer(Stream<T> sourceStream, ExecutorService executor) {
+            producer = Workers.startProducer(executor, sourceStream,
+                    () -> sourceStream.forEach(this::queueElement), queue::done, tally);
+        }
+
+        private void queueElement(T t) {
+            queue.add(t);
+            tally.produced.increment();
+            if (logger.isDebugEnabled()) {
+                long counter = tally.produced.sum();
+                if (counter % config.getBatchSize() == 0) {
+                    logger.debug("{} ads added to queue. queue size={}, high water mark={}", counter, queue.size(), queue.highWaterMark());
+                }
+            }
+        }
+
+        long drain() {
+            long consumed = 0;
+            List<T> batch = new ArrayList<>(config.getBatchSize());
+            ConsumerMetrics metrics = config.getMetrics();
+            while (fillBatch(batch) > 0) {
+                long startedAt = metrics != ConsumerMetrics.NOOP ? System.nanoTime() : 0;
+                boolean succeeded = consumeWithRetries(batch);
+                if (startedAt != 0) {
+                    metrics.onBatch(batch.size(), System.nanoTime() - startedAt, succeeded);
+                }
+                if (succeeded) {
+                    consumed += batch.size();
+                    tally.consumed.addAndGet(batch.size());
+                    tally.batches.incrementAndGet();
+                } else if (!deadLetter(batch)) {
+                    break;
+                }
+                batch = new ArrayList<>(config.getBatchSize());
+            }
+            return consumed;
+        }
+
+        private boolean consumeWithRetries(List<T> batch) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    consumer.accept(batch);
+                    return true;
+                } catch (RuntimeException e) {
+                    if (attempt >= failurePolicy.getMaxAttempts() || queue.isCancelled()) {
+                        tally.failedBatches.incrementAndGet();
+                        tally.failedElements.addAndGet(batch.size());
+                        tally.consumerFailure.compareAndSet(null, e);
+                        logger.warn("batch of {} failed after {} attempts: ", batch.size(), attempt, e);
+                        return false;
+                    }
+                    tally.retries.incrementAndGet();
+                    ThreadUtils.sleep(failurePolicy.backoffAfter(attempt).toMillis());
+                }
+            }
+        }
+
+        /**
+         * @return true if consumption can carry on, false if it failed fast and the queue was cancelled
+         */
+        private boolean deadLetter(List<T> batch) {
+            Optional<Consumer<? super List<T>>> deadLetterConsumer = failurePolicy.getDeadLetterConsumer();
+            if (deadLetterConsumer.isPresent() && !queue.isCancelled()) {
+                try {
+                    deadLetterConsumer.get().accept(batch);
+                    tally.deadLettered.addAndGet(batch.size());
+                    return true;
+                } catch (RuntimeException e) {
+                    logger.error("dead letter consumer failed, cancelling: ", e);
+                }
+            }
+            cancel();
+            return false;
+        }
+
+        private int fillBatch(List<T> batch) {
+            return config.getLinger()
+                    .map(linger -> queue.drainTo(batch, config.getBatchSize(), linger))
+                    .orElseGet(() -> queue.drainTo(batch, config.getBatchSize()));
+        }
+
+        /**
+         * stop the producer and discard whatever is still queued; batches already being consumed finish
+         */
+        void cancel() {
+            tally.cancelled = true;
+            queue.cancel();
+            if (producer != null) {
+                producer.cancel(true);
+            }
+        }
+
+        ConsumeResult finish(List<Long> consumedPerWorker) {
+            return tally.toResult(consumedPerWorker);
         }
     }
 }
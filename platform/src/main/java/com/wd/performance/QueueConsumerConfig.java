@@ -0,0 +1,130 @@
+package com.wd.performance;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * immutable tuning for one QueueConsumer, so differently tuned pipelines can run side by side in one jvm
+ */
+public class QueueConsumerConfig {
+
+    public static final QueueConsumerConfig DEFAULT = new Builder().build();
+
+    private final int batchSize;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final Duration linger;
+    private final ConsumerMetrics metrics;
+
+    private QueueConsumerConfig(Builder builder) {
+        this.batchSize = builder.batchSize;
+        this.parallelism = builder.parallelism;
+        this.queueCapacity = builder.queueCapacity;
+        this.linger = builder.linger;
+        this.metrics = builder.metrics;
+    }
+
+    /**
+     * @return the most elements handed to the consumer in one call
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the number of workers calling the consumer concurrently
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the number of queued elements at which the producer blocks
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return how long a partial batch may wait before it is flushed, empty to always wait for a full batch
+     */
+    public Optional<Duration> getLinger() {
+        return Optional.ofNullable(linger);
+    }
+
+    /**
+     * @return the listener told about queue and batch activity, ConsumerMetrics.NOOP by default
+     */
+    public ConsumerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+                .withBatchSize(batchSize)
+                .withParallelism(parallelism)
+                .withQueueCapacity(queueCapacity)
+                .withLinger(linger)
+                .withMetrics(metrics);
+    }
+
+    @Override
+    public String toString() {
+        return "QueueConsumerConfig{" +
+                "batchSize=" + batchSize +
+                ", parallelism=" + parallelism +
+                ", queueCapacity=" + queueCapacity +
+                ", linger=" + linger +
+                ", metrics=" + metrics +
+                '}';
+    }
+
+    public static class Builder {
+
+        private int batchSize = 100;
+        private int parallelism = 1;
+        private int queueCapacity = Integer.MAX_VALUE;
+        private Duration linger;
+        private ConsumerMetrics metrics = ConsumerMetrics.NOOP;
+
+        public Builder() {}
+
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder withParallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder withQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder withLinger(Duration linger) {
+            this.linger = linger;
+            return this;
+        }
+
+        public Builder withMetrics(ConsumerMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public QueueConsumerConfig build() {
+            requireAtLeastOne("batchSize", batchSize);
+            requireAtLeastOne("parallelism", parallelism);
+            requireAtLeastOne("queueCapacity", queueCapacity);
+            return new QueueConsumerConfig(this);
+        }
+
+        private static void requireAtLeastOne(String name, int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException(name + " must be at least 1, was " + value);
+            }
+        }
+    }
+}
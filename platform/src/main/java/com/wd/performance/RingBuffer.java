@@ -0,0 +1,116 @@
+package com.wd.performance;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Preallocated ring of mutable event slots for many producers.
+ * <p>
+ * A producer claims a sequence with next(), fills the slot from get(sequence) and makes it visible with
+ * publish(sequence). Claims are a CAS on the claim cursor, and a claim that would lap the slowest consumer
+ * waits for it, so the ring never overwrites an unprocessed event. Nothing is allocated after construction.
+ *
+ * @param <E> event slot type
+ */
+public class RingBuffer<E> {
+
+    private final Object[] slots;
+    private final int mask;
+    private final int indexShift;
+    // lap number of the last publish into each slot, so consumers can tell published slots from claimed ones
+    private final AtomicIntegerArray published;
+    private final Sequence claimed = new Sequence(-1);
+    private final Sequence cachedGating = new Sequence(-1);
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    /**
+     * @param size - a power of 2
+     * @param factory - called size times up front to create the slots
+     */
+    public RingBuffer(int size, Supplier<E> factory) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("size must be a power of 2, was " + size);
+        }
+        slots = new Object[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = factory.get();
+        }
+        mask = size - 1;
+        indexShift = Integer.numberOfTrailingZeros(size);
+        published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    /**
+     * claim the next slot, waiting while the ring is full
+     * @return the claimed sequence, which must be published
+     */
+    public long next() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > cachedGating.get()) {
+                long slowest = minimumGatingSequence(current);
+                if (wrapPoint > slowest) {
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+                cachedGating.set(slowest);
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    /**
+     * the highest claimed sequence; slots up to it may still be waiting to be published
+     */
+    long claimed() {
+        return claimed.get();
+    }
+
+    /**
+     * @return the highest sequence from lowerBound up to available that has been published without gaps
+     */
+    long highestPublished(long lowerBound, long available) {
+        for (long sequence = lowerBound; sequence <= available; sequence++) {
+            if (published.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * the sequences of the last consumers, which producers must not lap
+     */
+    void gateOn(Sequence[] sequences) {
+        gatingSequences = sequences;
+    }
+
+    long minimumGatingSequence(long defaultValue) {
+        long minimum = defaultValue;
+        for (Sequence sequence : gatingSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+}
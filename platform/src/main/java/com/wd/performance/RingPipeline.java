@@ -0,0 +1,221 @@
+package com.wd.performance;
+
+import com.wd.util.ThreadUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Alternative to QueueConsumer for high event rates: events are written into the preallocated slots of a
+ * RingBuffer and passed through stages of EventHandlers, each handler on its own thread.
+ * <p>
+ * Handlers of one stage see every event concurrently; a stage only sees an event once every handler of the
+ * previous stage is done with it, and producers only reuse a slot once the last stage is past it.
+ * Nothing is queued or allocated per event, so after warm-up the hot path is a CAS, a slot write and a release store.
+ * <p>
+ * A handler that throws is logged and counted and the event is skipped, so one bad event never stalls the ring.
+ *
+ * @param <E> event slot type
+ */
+public class RingPipeline<E> {
+
+    private static Logger logger = LogManager.getLogger(RingPipeline.class);
+
+    private final RingBuffer<E> ring;
+    private final WaitStrategy waitStrategy;
+    private final List<Processor> processors = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicLong handlerFailures = new AtomicLong();
+    private final BooleanSupplier isHalted = () -> this.halted;
+    private volatile boolean halted;
+
+    private RingPipeline(Builder<E> builder) {
+        this.ring = new RingBuffer<>(builder.ringSize, builder.eventFactory);
+        this.waitStrategy = builder.waitStrategy;
+        Sequence[] previousStage = new Sequence[0];
+        for (List<EventHandler<? super E>> stage : builder.stages) {
+            Sequence[] stageSequences = new Sequence[stage.size()];
+            for (int i = 0; i < stage.size(); i++) {
+                Processor processor = new Processor(stage.get(i), previousStage);
+                processors.add(processor);
+                stageSequences[i] = processor.sequence;
+            }
+            previousStage = stageSequences;
+        }
+        ring.gateOn(previousStage);
+    }
+
+    public RingBuffer<E> getRingBuffer() {
+        return ring;
+    }
+
+    public long getHandlerFailures() {
+        return handlerFailures.get();
+    }
+
+    public void start() {
+        start(ThreadUtils.daemonThreadFactory("ring-pipeline"));
+    }
+
+    /**
+     * start one thread per handler
+     * @param threadFactory
+     */
+    public synchronized void start(ThreadFactory threadFactory) {
+        if (!threads.isEmpty()) {
+            throw new IllegalStateException("pipeline was already started");
+        }
+        for (Processor processor : processors) {
+            Thread thread = threadFactory.newThread(processor);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * claim a slot, fill it with translator and publish it; waits while the ring is full
+     * @param translator - writes arg into the slot
+     * @param arg
+     */
+    public <A> void publish(BiConsumer<? super E, ? super A> translator, A arg) {
+        long sequence = ring.next();
+        try {
+            translator.accept(ring.get(sequence), arg);
+        } finally {
+            ring.publish(sequence);
+        }
+    }
+
+    /**
+     * wait until every claimed event has been through the last stage, then stop the handler threads.
+     * producers must have stopped publishing
+     */
+    public void shutdown() {
+        while (!halted && ring.minimumGatingSequence(Long.MAX_VALUE) < ring.claimed()) {
+            LockSupport.parkNanos(1000);
+        }
+        halt();
+    }
+
+    /**
+     * stop the handler threads without waiting for queued events
+     */
+    public synchronized void halt() {
+        halted = true;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while stopping the pipeline", e);
+            }
+        }
+    }
+
+    private static long minimum(Sequence[] sequences) {
+        long minimum = Long.MAX_VALUE;
+        for (Sequence sequence : sequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * runs one handler over the ring, following the previous stage or, in the first stage, the producers
+     */
+    private class Processor implements Runnable {
+
+        final Sequence sequence = new Sequence(-1);
+        private final EventHandler<? super E> handler;
+        private final LongSupplier available;
+        // only read and written by the processor's own thread
+        private long next;
+
+        Processor(EventHandler<? super E> handler, Sequence[] dependencies) {
+            this.handler = handler;
+            // claimed is not published, so the first stage waits for the first gap to be filled
+            this.available = dependencies.length == 0
+                    ? () -> ring.highestPublished(next, ring.claimed())
+                    : () -> minimum(dependencies);
+        }
+
+        @Override
+        public void run() {
+            next = sequence.get() + 1;
+            while (!halted) {
+                long availableSequence = waitStrategy.waitFor(next, available, isHalted);
+                for (long current = next; current <= availableSequence; current++) {
+                    try {
+                        handler.onEvent(ring.get(current), current, current == availableSequence);
+                    } catch (RuntimeException e) {
+                        handlerFailures.incrementAndGet();
+                        logger.error("handler failed on sequence {}, skipping it: ", current, e);
+                    }
+                }
+                if (availableSequence >= next) {
+                    sequence.set(availableSequence);
+                    next = availableSequence + 1;
+                }
+            }
+        }
+    }
+
+    public static class Builder<E> {
+
+        private final int ringSize;
+        private final Supplier<E> eventFactory;
+        private WaitStrategy waitStrategy = WaitStrategy.yielding();
+        private final List<List<EventHandler<? super E>>> stages = new ArrayList<>();
+
+        /**
+         * @param ringSize - a power of 2
+         * @param eventFactory - creates the reusable event slots
+         */
+        public Builder(int ringSize, Supplier<E> eventFactory) {
+            this.ringSize = ringSize;
+            this.eventFactory = eventFactory;
+        }
+
+        /**
+         * @param waitStrategy - how handlers wait for events, yielding() by default
+         */
+        public Builder<E> withWaitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * add a stage after the ones added so far; its handlers run concurrently with each other
+         * @param handlers
+         */
+        @SafeVarargs
+        public final Builder<E> handleWith(EventHandler<? super E>... handlers) {
+            if (handlers.length == 0) {
+                throw new IllegalArgumentException("a stage needs at least one handler");
+            }
+            // copied rather than wrapped with Arrays.asList, which would hand the generic array on
+            List<EventHandler<? super E>> stage = new ArrayList<>(handlers.length);
+            for (EventHandler<? super E> handler : handlers) {
+                stage.add(handler);
+            }
+            stages.add(stage);
+            return this;
+        }
+
+        public RingPipeline<E> build() {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("a pipeline needs at least one stage");
+            }
+            return new RingPipeline<>(this);
+        }
+    }
+}
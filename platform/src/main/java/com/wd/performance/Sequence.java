@@ -0,0 +1,33 @@
+package com.wd.performance;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * a ring position shared between threads. The value sits in the middle of a 15 long array so two hot sequences
+ * never end up on the same cache line
+ */
+final class Sequence {
+
+    private static final int VALUE = 7;
+
+    private final AtomicLongArray padded = new AtomicLongArray(15);
+
+    Sequence(long initialValue) {
+        padded.set(VALUE, initialValue);
+    }
+
+    long get() {
+        return padded.get(VALUE);
+    }
+
+    /**
+     * release store - everything written before it is visible to a thread that reads the new value
+     */
+    void set(long value) {
+        padded.lazySet(VALUE, value);
+    }
+
+    boolean compareAndSet(long expected, long value) {
+        return padded.compareAndSet(VALUE, expected, value);
+    }
+}
@@ -0,0 +1,77 @@
+package com.wd.performance;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * how a RingPipeline stage waits for the events it depends on, trading latency against cpu
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    /**
+     * @param sequence - the sequence the caller needs
+     * @param available - the highest sequence the caller may process
+     * @param halted - true once the caller should give up
+     * @return the available sequence, at least sequence unless halted
+     */
+    long waitFor(long sequence, LongSupplier available, BooleanSupplier halted);
+
+    /**
+     * lowest latency, burns a core per stage; only for stages that have one to themselves
+     */
+    static WaitStrategy busySpin() {
+        return (sequence, available, halted) -> {
+            long availableSequence;
+            while ((availableSequence = available.getAsLong()) < sequence && !halted.getAsBoolean()) {
+                Thread.onSpinWait();
+            }
+            return availableSequence;
+        };
+    }
+
+    /**
+     * spin briefly, then yield the cpu between checks
+     */
+    static WaitStrategy yielding() {
+        return (sequence, available, halted) -> {
+            long availableSequence;
+            int spins = 100;
+            while ((availableSequence = available.getAsLong()) < sequence && !halted.getAsBoolean()) {
+                if (spins > 0) {
+                    spins--;
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return availableSequence;
+        };
+    }
+
+    /**
+     * spin, then yield, then park for parkTime between checks; idle stages cost almost nothing
+     * but pick up new events up to parkTime late
+     * @param parkTime
+     */
+    static WaitStrategy parking(Duration parkTime) {
+        long parkNanos = parkTime.toNanos();
+        return (sequence, available, halted) -> {
+            long availableSequence;
+            int tries = 200;
+            while ((availableSequence = available.getAsLong()) < sequence && !halted.getAsBoolean()) {
+                if (tries > 100) {
+                    Thread.onSpinWait();
+                } else if (tries > 0) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(parkNanos);
+                }
+                tries--;
+            }
+            return availableSequence;
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.wd.performance;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import java.util.stream.BaseStream;
+
+/**
+ * the producer and worker threads shared by QueueConsumer, OrderedPipeline and PrimitiveQueueConsumer
+ */
+final class Workers {
+
+    private static Logger logger = LogManager.getLogger(Workers.class);
+
+    private Workers() {}
+
+    /**
+     * run produce on the executor. a cancelled queue stops it quietly, any other failure is kept in the tally
+     * so what was queued is still consumed; either way the source is closed and done is called
+     * @param executor
+     * @param sourceStream
+     * @param produce - copies sourceStream into the queue
+     * @param done - tells the queue's consumers there is nothing more to come
+     * @param tally
+     * @return the producer, to cancel if consumption stops early
+     */
+    static Future<?> startProducer(ExecutorService executor, BaseStream<?, ?> sourceStream, Runnable produce,
+                                   Runnable done, ConsumeResult.Tally tally) {
+        return executor.submit(() -> {
+            try {
+                produce.run();
+            } catch (CancellationException e) {
+                logger.info("producer stopped, queue was cancelled");
+            } catch (RuntimeException e) {
+                tally.producerFailure.set(e);
+                logger.error("producer failed, consuming what was queued: ", e);
+            } finally {
+                sourceStream.close();
+                done.run();
+            }
+        });
+    }
+
+    /**
+     * run parallelism workers, all but one on the executor and the last on the calling thread.
+     * if any worker ends abnormally the run is cancelled, so workers parked on the queue or on each other wake up,
+     * the other workers are interrupted and the failure is thrown
+     * @param parallelism
+     * @param work
+     * @param executor
+     * @param cancel - stops the run, ending the work of every worker; may be called more than once
+     * @return what each worker returned, the calling thread's first
+     */
+    static List<Long> runWorkers(int parallelism, LongSupplier work, ExecutorService executor, Runnable cancel) {
+        // a worker that fails cancels the run itself, the calling thread may be parked and unable to notice
+        LongSupplier cancellingWork = () -> {
+            try {
+                return work.getAsLong();
+            } catch (RuntimeException | Error e) {
+                cancel.run();
+                throw e;
+            }
+        };
+        List<Future<Long>> workers = new ArrayList<>();
+        try {
+            for (int i = 1; i < parallelism; i++) {
+                workers.add(executor.submit(cancellingWork::getAsLong));
+            }
+
+            List<Long> results = new ArrayList<>();
+            results.add(cancellingWork.getAsLong());
+            for (Future<Long> worker : workers) {
+                results.add(awaitWorker(worker));
+            }
+            return results;
+        } catch (RuntimeException | Error e) {
+            logger.error("worker ended abnormally, cancelling the other workers: ", e);
+            cancel.run();
+            for (Future<Long> worker : workers) {
+                worker.cancel(true);
+            }
+            throw e;
+        }
+    }
+
+    private static long awaitWorker(Future<Long> worker) {
+        try {
+            return worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for worker", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("worker failed", e.getCause());
+        }
+    }
+}
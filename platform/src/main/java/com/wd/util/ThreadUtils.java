@@ -1,7 +1,15 @@
 package com.wd.util;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class ThreadUtils {
 
+    private static final ExecutorService LIGHTWEIGHT_EXECUTOR = createLightweightExecutor();
+
     public static final void sleep(long forMillis) {
         try {
             Thread.sleep(forMillis);
@@ -9,4 +17,37 @@ public class ThreadUtils {
             throw new RuntimeException("sleep was interrupted", iex);
         }
     }
+
+    /**
+     * a thread factory producing daemon threads named prefix-1, prefix-2...
+     * @param prefix
+     * @return
+     */
+    public static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger(1);
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * a shared executor that starts a virtual thread per task when the runtime supports them (java 21+)
+     * and otherwise falls back to a cached pool of daemon threads, so idle threads are reused across calls.
+     * the executor is shared by all callers and must not be shut down
+     * @return
+     */
+    public static ExecutorService lightweightExecutor() {
+        return LIGHTWEIGHT_EXECUTOR;
+    }
+
+    private static ExecutorService createLightweightExecutor() {
+        try {
+            Method virtualThreadPerTask = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreadPerTask.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreadFactory("lightweight"));
+        }
+    }
 }
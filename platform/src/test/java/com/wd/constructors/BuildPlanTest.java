@@ -0,0 +1,150 @@
+package com.wd.constructors;
+
+import com.wd.functional.NamedPredicate;
+import com.wd.util.ThreadUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BuildPlanTest {
+
+    @Test
+    void aFrozenPlanBuildsRepeatedly() {
+        BuildPlan<Person> plan = Builder.of(Person::new)
+                .with(Person::setName, "Otto")
+                .with(Person::setAge, 5).freeze();
+
+        List<Person> people = plan.buildAll(1000);
+
+        assertThat(people).hasSize(1000).doesNotHaveDuplicates();
+        assertThat(people).allMatch(person -> person.getName().equals("Otto") && person.getAge() == 5);
+        assertThat(plan.stream(10_000).parallel().filter(person -> person.getAge() == 5).count()).isEqualTo(10_000);
+    }
+
+    @Test
+    void settersRunInTheOrderTheyWereAdded() {
+        List<String> calls = new ArrayList<>();
+        BuildPlan<Person> plan = Builder.of(Person::new)
+                .with((person, name) -> calls.add(name), "first")
+                .with((person, name) -> calls.add(name), "second")
+                .with((person, name) -> calls.add(name), "third").freeze();
+
+        plan.build();
+
+        assertThat(calls).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void laterChangesToTheBuilderDoNotAffectThePlan() {
+        Builder<Person> builder = Builder.of(Person::new).with(Person::setAge, 5);
+        BuildPlan<Person> plan = builder.freeze();
+
+        builder.with(Person::setAge, 6);
+
+        assertThat(plan.build().getAge()).isEqualTo(5);
+        assertThat(builder.freeze().build().getAge()).isEqualTo(6);
+    }
+
+    @Test
+    void everyInstanceIsVerified() {
+        NamedPredicate<Person> ageVerifier = new NamedPredicate<>("isOlderThan3", p -> p.getAge() > 3);
+        BuildPlan<Person> plan = Builder.of(Person::new)
+                .withVerifiers(ageVerifier)
+                .with(Person::setAge, 2).freeze();
+
+        assertThrows(IllegalStateException.class, () -> plan.stream(3).collect(Collectors.toList()));
+    }
+
+    @Test
+    void failFastStopsAtTheFirstViolation() {
+        AtomicInteger laterChecks = new AtomicInteger();
+        BuildPlan<Person> plan = Builder.of(Person::new)
+                .withVerifiers(new NamedPredicate<Person>("hasName", p -> p.getName() != null),
+                        new NamedPredicate<Person>("counted", p -> laterChecks.incrementAndGet() > 0))
+                .withVerificationMode(VerificationMode.FAIL_FAST)
+                .with(Person::setAge, 2).freeze();
+
+        VerificationException e = assertThrows(VerificationException.class, plan::build);
+
+        assertThat(e.getViolations()).containsExactly("hasName");
+        assertThat(e.getTimings()).hasSize(1);
+        assertThat(laterChecks.get()).isEqualTo(0);
+    }
+
+    @Test
+    void collectAllReportsEveryViolationAndTiming() {
+        BuildPlan<Person> plan = Builder.of(Person::new)
+                .withVerifiers(new NamedPredicate<Person>("hasName", p -> p.getName() != null),
+                        new NamedPredicate<Person>("isAdult", p -> p.getAge() >= 18),
+                        new NamedPredicate<Person>("isBorn", p -> p.getAge() >= 0))
+                .with(Person::setAge, 2).freeze();
+
+        VerificationException e = assertThrows(VerificationException.class, plan::build);
+
+        assertThat(e.getViolations()).containsExactly("hasName", "isAdult");
+        assertThat(e.getTimings()).hasSize(3);
+        assertThat(e.getMessage()).endsWith("violates predicates [hasName, isAdult]");
+    }
+
+    @Test
+    void aViolationRunsEachVerifierOnceAndTimesVerifiersOfTheSameName() {
+        AtomicInteger lookups = new AtomicInteger();
+        Predicate<Person> lookup = p -> {
+            lookups.incrementAndGet();
+            ThreadUtils.sleep(20);
+            return true;
+        };
+        BuildPlan<Person> plan = Builder.of(Person::new)
+                .withVerifiers(new NamedPredicate<>("lookup", lookup), new NamedPredicate<>("lookup", lookup),
+                        new NamedPredicate<Person>("isAdult", p -> p.getAge() >= 18))
+                .with(Person::setAge, 2).freeze();
+
+        VerificationException e = assertThrows(VerificationException.class, plan::build);
+
+        assertThat(lookups.get()).isEqualTo(2);
+        assertThat(e.getTimings()).hasSize(3);
+        assertThat(e.getTimings().subList(0, 2)).allMatch(timing -> timing.compareTo(Duration.ofMillis(20)) >= 0);
+    }
+
+    @Test
+    void parallelVerifiersWaitConcurrently() {
+        Predicate<Person> slowLookup = p -> {
+            ThreadUtils.sleep(200);
+            return true;
+        };
+        BuildPlan<Person> plan = Builder.of(Person::new)
+                .withVerifiers(new NamedPredicate<>("lookup1", slowLookup), new NamedPredicate<>("lookup2", slowLookup),
+                        new NamedPredicate<>("lookup3", slowLookup), new NamedPredicate<Person>("isAdult", p -> p.getAge() >= 18))
+                .withVerificationMode(VerificationMode.PARALLEL)
+                .with(Person::setAge, 2).freeze();
+
+        long startedAt = System.nanoTime();
+        VerificationException e = assertThrows(VerificationException.class, plan::build);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofMillis(500));
+        assertThat(e.getViolations()).containsExactly("isAdult");
+        assertThat(e.getTimings().get(1)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void passingInstancesAreVerifiedOnceAndCanBeTimedOnRequest() {
+        AtomicInteger checks = new AtomicInteger();
+        BuildPlan<Person> plan = Builder.of(Person::new)
+                .withVerifiers(new NamedPredicate<Person>("counted", p -> checks.incrementAndGet() > 0),
+                        new NamedPredicate<Person>("isBorn", p -> p.getAge() >= 0))
+                .with(Person::setAge, 2).freeze();
+
+        plan.buildAll(10);
+        assertThat(checks.get()).isEqualTo(10);
+
+        assertThat(plan.timeVerifiers(plan.build())).hasSize(2);
+    }
+}
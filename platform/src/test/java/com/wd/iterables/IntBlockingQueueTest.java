@@ -0,0 +1,91 @@
+package com.wd.iterables;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntBlockingQueueTest {
+
+    @Test
+    void valuesWrapAroundTheRingInOrder() {
+        IntBlockingQueue queue = new IntBlockingQueue(8);
+        int[] target = new int[8];
+
+        queue.addAll(new int[]{1, 2, 3, 4, 5, 6}, 0, 6);
+        assertThat(queue.drainTo(target, 4)).isEqualTo(4);
+        queue.addAll(new int[]{7, 8, 9, 10, 11}, 0, 5);
+        queue.add(12);
+        queue.done();
+
+        assertThat(queue.drainTo(target, 8)).isEqualTo(8);
+        assertThat(target).containsExactly(5, 6, 7, 8, 9, 10, 11, 12);
+        assertThat(queue.drainTo(target, 8)).isEqualTo(0);
+    }
+
+    @Test
+    void producerBlocksUntilTheConsumerMakesRoom() {
+        IntBlockingQueue queue = new IntBlockingQueue(16);
+        int[] source = IntStream.rangeClosed(1, 10_000).toArray();
+        CompletableFuture.runAsync(() -> {
+            queue.addAll(source, 0, source.length);
+            queue.done();
+        });
+
+        int[] batch = new int[100];
+        long sum = 0;
+        int length;
+        while ((length = queue.drainTo(batch, batch.length)) > 0) {
+            for (int i = 0; i < length; i++) {
+                sum += batch[i];
+            }
+        }
+        assertThat(sum).isEqualTo(10_000L * 10_001 / 2);
+    }
+
+    @Test
+    void cancelDiscardsValuesAndFailsProducers() {
+        IntBlockingQueue queue = new IntBlockingQueue(4);
+        queue.addAll(new int[]{1, 2, 3, 4}, 0, 4);
+        queue.cancel();
+
+        assertThat(queue.size()).isEqualTo(0);
+        assertThat(queue.drainTo(new int[4], 4)).isEqualTo(0);
+        assertThatThrownBy(() -> queue.add(5)).isInstanceOf(CancellationException.class);
+    }
+
+    @Test
+    void iteratorBlocksUntilDone() {
+        IntBlockingQueue queue = new IntBlockingQueue(4);
+        CompletableFuture.runAsync(() -> {
+            for (int i = 1; i <= 100; i++) {
+                queue.add(i);
+            }
+            queue.done();
+        });
+
+        long sum = 0;
+        PrimitiveIterator.OfInt values = queue.iterator();
+        while (values.hasNext()) {
+            sum += values.nextInt();
+        }
+        assertThat(sum).isEqualTo(5050);
+        assertThat(values.hasNext()).isFalse();
+    }
+
+    @Test
+    void lingerReturnsAPartialBatch() {
+        IntBlockingQueue queue = new IntBlockingQueue(8);
+        queue.addAll(new int[]{1, 2, 3}, 0, 3);
+
+        long startedAt = System.nanoTime();
+        assertThat(queue.drainTo(new int[8], 8, Duration.ofMillis(20))).isEqualTo(3);
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+    }
+}
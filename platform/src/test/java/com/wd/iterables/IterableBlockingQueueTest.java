@@ -1,22 +1,33 @@
 package com.wd.iterables;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static com.wd.util.ThreadUtils.sleep;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
 
 class IterableBlockingQueueTest {
 
+    private static Logger logger = LogManager.getLogger(IterableBlockingQueueTest.class);
+
     @Test
     public void theIteratorWillWaitWhenItsEmptyAndNotDone() throws InterruptedException {
 
@@ -69,4 +80,156 @@ class IterableBlockingQueueTest {
         // consumer should receive all messages
         assertThat(messages).isEqualTo(captured);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void aBoundedQueueBlocksTheProducerUntilAConsumerMakesRoom() throws InterruptedException {
+
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>(2);
+        final CountDownLatch producerFinished = new CountDownLatch(1);
+
+        final ExecutorService exec = Executors.newSingleThreadExecutor();
+        exec.submit(() -> {
+            IntStream.range(0, 10).forEach(queue::add);
+            queue.done();
+            producerFinished.countDown();
+        });
+
+        // producer can't get past the capacity while nobody consumes
+        assertThat(producerFinished.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queue.size()).isEqualTo(2);
+
+        final List<Integer> captured = new ArrayList<>();
+        queue.forEach(captured::add);
+        exec.shutdownNow();
+
+        assertThat(captured).isEqualTo(IntStream.range(0, 10).boxed().collect(Collectors.toList()));
+        assertThat(queue.highWaterMark()).isEqualTo(2);
+    }
+
+    @Test
+    public void aFullQueueRejectsOrTimesOutAccordingToItsPolicy() {
+
+        final IterableBlockingQueue<Integer> rejecting = new IterableBlockingQueue<>(1, OverflowPolicy.REJECT);
+        rejecting.add(1);
+        assertThrows(IllegalStateException.class, () -> rejecting.add(2));
+        assertThat(rejecting.rejected()).isEqualTo(1);
+
+        final IterableBlockingQueue<Integer> timingOut = new IterableBlockingQueue<>(1, OverflowPolicy.TIMEOUT, Duration.ofMillis(20));
+        timingOut.add(1);
+        assertThrows(IllegalStateException.class, () -> timingOut.add(2));
+        assertThat(timingOut.rejected()).isEqualTo(1);
+        assertThat(timingOut.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void aWaitingConsumerIsHandedElementsWellInsideTheOldPollInterval() throws Exception {
+
+        final IterableBlockingQueue<Long> queue = new IterableBlockingQueue<>();
+        // the first hand offs run before the add and take paths are compiled, so they are left out of the percentiles
+        final int warmUps = 5_000;
+        final int handOffs = 2_000;
+        final long[] latencies = new long[warmUps + handOffs];
+        final CountDownLatch consumed = new CountDownLatch(latencies.length);
+        final AtomicLong lastConsumed = new AtomicLong(-1);
+        final AtomicReference<Thread> consumer = new AtomicReference<>();
+
+        final ExecutorService exec = Executors.newSingleThreadExecutor();
+        exec.submit(() -> {
+            consumer.set(Thread.currentThread());
+            int i = 0;
+            for (Long sentAt : queue) {
+                latencies[i] = System.nanoTime() - sentAt;
+                lastConsumed.set(i++);
+                consumed.countDown();
+            }
+        });
+
+        for (int i = 0; i < latencies.length; i++) {
+            // let the consumer park on an empty queue before every hand off; yield rather than spin so a
+            // single cpu build machine can run the consumer
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (lastConsumed.get() != i - 1 || consumer.get() == null
+                    || consumer.get().getState() != Thread.State.WAITING) {
+                if (System.nanoTime() - deadline > 0) {
+                    fail("consumer did not park for hand off " + i);
+                }
+                Thread.yield();
+            }
+            queue.add(System.nanoTime());
+        }
+        assertThat(consumed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        final long[] measured = Arrays.copyOfRange(latencies, warmUps, latencies.length);
+        long p99 = percentile(measured, 0.99);
+        logger.info("hand off latency p50={}us p99={}us", percentile(measured, 0.5) / 1_000, p99 / 1_000);
+        // typically a few microseconds; the bound only has to catch a return to the old wait(150) polling
+        // without failing when a shared build machine deschedules the consumer
+        assertThat(p99).isLessThan(TimeUnit.MILLISECONDS.toNanos(15));
+
+        final long doneAt = System.nanoTime();
+        queue.done();
+        exec.shutdown();
+        assertThat(exec.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(System.nanoTime() - doneAt).isLessThan(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void drainingWithALingerReturnsAPartialBatchWithoutWaitingForDone() {
+
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>();
+        IntStream.range(0, 3).forEach(queue::add);
+
+        final List<Integer> batch = new ArrayList<>();
+        final long start = System.nanoTime();
+        final int drained = queue.drainTo(batch, 100, Duration.ofMillis(50));
+
+        assertThat(drained).isEqualTo(3);
+        assertThat(batch).isEqualTo(List.of(0, 1, 2));
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+
+        queue.done();
+        assertThat(queue.drainTo(batch, 100, Duration.ofMillis(50))).isEqualTo(0);
+    }
+
+    @Test
+    public void iteratorDoesNotSupportRemove() {
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>();
+        queue.add(1);
+        queue.done();
+
+        final Iterator<Integer> iterator = queue.iterator();
+        assertThat(iterator.next()).isEqualTo(1);
+        assertThrows(UnsupportedOperationException.class, iterator::remove);
+    }
+
+    @Test
+    public void aNullElementIsRejectedWithoutTakingUpRoom() {
+
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>(1, OverflowPolicy.REJECT);
+        assertThrows(NullPointerException.class, () -> queue.add(null));
+        assertThrows(NullPointerException.class, () -> queue.add(null));
+
+        queue.add(1);
+        assertThat(queue.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void aRemovedAvailabilityCallbackIsNotRun() {
+
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>();
+        final AtomicBoolean ran = new AtomicBoolean();
+        final Runnable callback = () -> ran.set(true);
+        queue.whenAvailable(callback);
+
+        assertThat(queue.removeWhenAvailable(callback)).isTrue();
+        queue.add(1);
+        assertThat(ran.get()).isFalse();
+        assertThat(queue.removeWhenAvailable(callback)).isFalse();
+    }
+
+    private static long percentile(long[] values, double percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+    }
+}
@@ -0,0 +1,158 @@
+package com.wd.iterables;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.wd.util.ThreadUtils.sleep;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueuePublisherTest {
+
+    @Test
+    void elementsAreEmittedOnlyAgainstDemand() throws Exception {
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>();
+        IntStream.range(0, 10).forEach(queue::add);
+        final ExecutorService exec = Executors.newSingleThreadExecutor();
+
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new QueuePublisher<>(queue, exec).subscribe(subscriber);
+
+        subscriber.subscription.request(3);
+        sleep(50);
+        assertThat(subscriber.received).containsExactly(0, 1, 2);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        queue.done();
+        subscriber.completed.get(5, TimeUnit.SECONDS);
+        assertThat(subscriber.received).hasSize(10);
+        exec.shutdown();
+    }
+
+    @Test
+    void aSubscriberWaitsForLateElementsWithoutParkingAThread() throws Exception {
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>();
+        final ExecutorService exec = Executors.newSingleThreadExecutor();
+
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new QueuePublisher<>(queue, exec).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        // the only executor thread must stay free while the queue is empty
+        assertThat(exec.submit(() -> true).get(1, TimeUnit.SECONDS)).isTrue();
+
+        IntStream.range(0, 5).forEach(i -> {
+            sleep(5);
+            queue.add(i);
+        });
+        queue.done();
+
+        subscriber.completed.get(5, TimeUnit.SECONDS);
+        assertThat(subscriber.received).containsExactly(0, 1, 2, 3, 4);
+        exec.shutdown();
+    }
+
+    @Test
+    void aQueueSubscriberFeedsTheQueueFromAnotherPublisher() throws Exception {
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>(16);
+        final QueueSubscriber<Integer> queueSubscriber = new QueueSubscriber<>(queue, 8);
+
+        try (SubmissionPublisher<Integer> upstream = new SubmissionPublisher<>()) {
+            upstream.subscribe(queueSubscriber);
+            CompletableFuture.runAsync(() -> IntStream.range(0, 1000).forEach(upstream::submit))
+                    .thenRun(upstream::close);
+
+            final List<Integer> captured = new CopyOnWriteArrayList<>();
+            queue.forEach(captured::add);
+
+            assertThat(captured).isEqualTo(IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+            assertThat(queueSubscriber.getError()).isEmpty();
+            assertThat(queue.highWaterMark()).isLessThanOrEqualTo(16);
+        }
+    }
+
+    @Test
+    void aNonPositiveRequestIsSignalledAsAnError() throws Exception {
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>();
+        final ExecutorService exec = Executors.newSingleThreadExecutor();
+
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new QueuePublisher<>(queue, exec).subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertThatThrownBy(() -> subscriber.completed.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(subscriber.errorThread).isNotEqualTo(Thread.currentThread().getName());
+        exec.shutdown();
+    }
+
+    @Test
+    void aRejectingQueueCancelsTheSubscriptionAndRecordsTheError() {
+        final IterableBlockingQueue<Integer> queue = new IterableBlockingQueue<>(2, OverflowPolicy.REJECT);
+        final QueueSubscriber<Integer> queueSubscriber = new QueueSubscriber<>(queue, 8);
+        final RecordingSubscription subscription = new RecordingSubscription();
+        queueSubscriber.onSubscribe(subscription);
+
+        IntStream.range(0, 3).forEach(queueSubscriber::onNext);
+
+        assertThat(subscription.cancelled).isTrue();
+        assertThat(queueSubscriber.getError()).containsInstanceOf(IllegalStateException.class);
+        // the queue was marked done, so iterating it ends with the accepted elements
+        final List<Integer> captured = new CopyOnWriteArrayList<>();
+        queue.forEach(captured::add);
+        assertThat(captured).containsExactly(0, 1);
+    }
+
+    private static class RecordingSubscription implements Flow.Subscription {
+
+        volatile boolean cancelled;
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> completed = new CompletableFuture<>();
+        volatile Flow.Subscription subscription;
+        volatile String errorThread;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            errorThread = Thread.currentThread().getName();
+            completed.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed.complete(null);
+        }
+    }
+}
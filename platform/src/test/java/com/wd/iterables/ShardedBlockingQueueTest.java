@@ -0,0 +1,77 @@
+package com.wd.iterables;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedBlockingQueueTest {
+
+    @Test
+    void everyElementFromManyProducersReachesExactlyOneConsumer() throws Exception {
+
+        final ShardedBlockingQueue<Integer> queue = new ShardedBlockingQueue<>(4);
+        final int producers = 8;
+        final int perProducer = 10_000;
+        final ExecutorService exec = Executors.newCachedThreadPool();
+
+        final Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final List<Future<?>> consumers = new ArrayList<>();
+        for (int c = 0; c < 3; c++) {
+            consumers.add(exec.submit(() -> queue.forEach(i -> {
+                if (!consumed.add(i)) {
+                    duplicates.incrementAndGet();
+                }
+            })));
+        }
+
+        final CountDownLatch produced = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final int offset = p * perProducer;
+            exec.submit(() -> {
+                IntStream.range(offset, offset + perProducer).forEach(queue::add);
+                produced.countDown();
+            });
+        }
+
+        assertThat(produced.await(10, TimeUnit.SECONDS)).isTrue();
+        queue.done();
+        for (Future<?> consumer : consumers) {
+            consumer.get(10, TimeUnit.SECONDS);
+        }
+        exec.shutdown();
+
+        assertThat(consumed).hasSize(producers * perProducer);
+        assertThat(duplicates.get()).isEqualTo(0);
+        assertThat(queue.size()).isEqualTo(0);
+    }
+
+    @Test
+    void aConsumerStealsFromOtherShards() {
+
+        final ShardedBlockingQueue<Integer> queue = new ShardedBlockingQueue<>(8);
+        IntStream.range(0, 100).forEach(queue::add);
+        queue.done();
+
+        final List<Integer> drained = new ArrayList<>();
+        while (queue.drainTo(drained, 7) > 0) {
+            // keep draining
+        }
+
+        // a single producer thread fills one shard, whichever home shard the drains start on
+        assertThat(drained).hasSize(100);
+        assertThat(drained).isSorted();
+    }
+}
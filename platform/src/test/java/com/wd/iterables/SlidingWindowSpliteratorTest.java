@@ -4,12 +4,18 @@ package com.wd.iterables;
 import org.junit.jupiter.api.Test;
 
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static com.wd.iterables.SlidingWindowSpliterator.tumbling;
 import static com.wd.iterables.SlidingWindowSpliterator.windowed;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class SlidingWindowSpliteratorTest {
 
@@ -87,4 +93,94 @@ class SlidingWindowSpliteratorTest {
 
         assertThat(result).isEqualTo(0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldSplitRandomAccessListsWithoutLosingWindows() {
+        var source = IntStream.range(0, 10_000).boxed().collect(toList());
+
+        var sums = windowed(source, 5)
+                .parallel()
+                .map(s -> s.mapToInt(Integer::intValue).sum())
+                .collect(toList());
+
+        assertThat(sums).hasSize(9_996);
+        assertThat(sums.get(0)).isEqualTo(0 + 1 + 2 + 3 + 4);
+        assertThat(sums.get(9_995)).isEqualTo(9_995 + 9_996 + 9_997 + 9_998 + 9_999);
+        assertThat(IntStream.range(0, sums.size()).allMatch(i -> sums.get(i) == 5 * i + 10)).isTrue();
+    }
+
+    @Test
+    void shouldSplitIntoOverlappingHalves() {
+        var spliterator = windowed(List.of(1, 2, 3, 4, 5, 6), 3).spliterator();
+
+        var prefix = spliterator.trySplit();
+
+        assertThat(prefix.estimateSize()).isEqualTo(2);
+        assertThat(spliterator.estimateSize()).isEqualTo(2);
+        assertThat(spliterator.hasCharacteristics(Spliterator.SUBSIZED)).isTrue();
+        prefix.forEachRemaining(s -> assertThat(s.collect(toList())).isSubsetOf(1, 2, 3, 4));
+        spliterator.tryAdvance(s -> assertThat(s.collect(toList())).containsExactly(3, 4, 5));
+    }
+
+    @Test
+    void shouldNotSplitSequentialCollections() {
+        var source = new LinkedList<>(List.of(1, 2, 3, 4));
+
+        var spliterator = windowed(source, 2).spliterator();
+
+        assertThat(spliterator.trySplit()).isNull();
+        assertThat(windowed(source, 2).parallel().map(s -> s.collect(toList())).collect(toList()))
+                .containsExactly(List.of(1, 2), List.of(2, 3), List.of(3, 4));
+    }
+
+    @Test
+    void shouldWindowAnInfiniteStream() {
+        var result = windowed(Stream.iterate(1, i -> i + 1), 3)
+                .limit(3)
+                .map(s -> s.collect(toList()))
+                .collect(toList());
+
+        assertThat(result).containsExactly(List.of(1, 2, 3), List.of(2, 3, 4), List.of(3, 4, 5));
+    }
+
+    @Test
+    void shouldReportUnknownSizeForStreams() {
+        var spliterator = windowed(Stream.of(1, 2, 3), 2).spliterator();
+
+        assertThat(spliterator.estimateSize()).isEqualTo(Long.MAX_VALUE);
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED)).isFalse();
+    }
+
+    @Test
+    void shouldHopAndTumble() {
+        var hopping = windowed(IntStream.rangeClosed(1, 8).boxed(), 3, 2)
+                .map(s -> s.collect(toList()))
+                .collect(toList());
+        var skipping = windowed(IntStream.rangeClosed(1, 8).boxed(), 2, 3)
+                .map(s -> s.collect(toList()))
+                .collect(toList());
+        var tumbled = tumbling(IntStream.rangeClosed(1, 7).boxed(), 3)
+                .map(s -> s.collect(toList()))
+                .collect(toList());
+
+        assertThat(hopping).containsExactly(List.of(1, 2, 3), List.of(3, 4, 5), List.of(5, 6, 7));
+        assertThat(skipping).containsExactly(List.of(1, 2), List.of(4, 5), List.of(7, 8));
+        assertThat(tumbled).containsExactly(List.of(1, 2, 3), List.of(4, 5, 6));
+        assertThatThrownBy(() -> windowed(Stream.of(1), 1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldWindowALiveQueue() {
+        var queue = new IterableBlockingQueue<Integer>();
+        CompletableFuture.runAsync(() -> {
+            IntStream.rangeClosed(1, 6).forEach(queue::add);
+            queue.done();
+        });
+
+        var windows = windowed(queue.iterator(), 2, 2)
+                .map(s -> s.mapToInt(Integer::intValue).sum())
+                .collect(toList());
+
+        assertThat(windows).containsExactly(3, 7, 11);
+    }
+}
@@ -0,0 +1,71 @@
+package com.wd.iterables;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingWindowsTest {
+
+    @Test
+    void listWindowsAreViewsOntoTheSource() {
+        var source = new ArrayList<>(List.of(1, 2, 3, 4));
+
+        var windows = SlidingWindows.views(source, 3).collect(toList());
+        source.set(2, 30);
+
+        assertThat(windows).containsExactly(List.of(1, 2, 30), List.of(2, 30, 4));
+    }
+
+    @Test
+    void arrayWindowsAreIndexRanges() {
+        double[] values = {1.0, 2.0, 3.0, 4.0};
+        List<Double> firsts = new ArrayList<>();
+
+        SlidingWindows.forEachWindow(values, 2, (from, to) -> {
+            assertThat(to - from).isEqualTo(2);
+            firsts.add(values[from]);
+        });
+
+        assertThat(firsts).containsExactly(1.0, 2.0, 3.0);
+    }
+
+    @Test
+    void rollingAggregationsMatchRecomputingEachWindow() {
+        int[] values = new Random(42).ints(1000, -500, 500).toArray();
+        int windowSize = 7;
+
+        long[] sums = SlidingWindows.rollingSum(values, windowSize);
+        double[] means = SlidingWindows.rollingMean(values, windowSize);
+        int[] mins = SlidingWindows.rollingMin(values, windowSize);
+        int[] maxes = SlidingWindows.rollingMax(values, windowSize);
+
+        assertThat(sums).hasSize(994);
+        for (int from = 0; from < sums.length; from++) {
+            var window = IntStream.range(from, from + windowSize).map(i -> values[i]);
+            var stats = window.summaryStatistics();
+            assertThat(sums[from]).isEqualTo(stats.getSum());
+            assertThat(means[from]).isEqualTo(stats.getAverage());
+            assertThat(mins[from]).isEqualTo(stats.getMin());
+            assertThat(maxes[from]).isEqualTo(stats.getMax());
+        }
+    }
+
+    @Test
+    void rollingMinAndMaxOfLongsAndDoubles() {
+        assertThat(SlidingWindows.rollingMin(new long[]{5, 3, 3, 8, 1, 9}, 3)).containsExactly(3, 3, 1, 1);
+        assertThat(SlidingWindows.rollingMax(new double[]{5, 3, 3, 8, 1, 9}, 3)).containsExactly(5.0, 8.0, 8.0, 9.0);
+        assertThat(SlidingWindows.rollingMean(new double[]{1, 2, 3}, 4)).isEmpty();
+    }
+
+    @Test
+    void windowSizeMustBePositive() {
+        assertThatThrownBy(() -> SlidingWindows.rollingSum(new int[]{1}, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,117 @@
+package com.wd.iterables;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeWindowsTest {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    void tumblingWindowsCountEventsAndStaySmall() {
+        List<TimeWindows.Window<Long>> windows = new ArrayList<>();
+        TimeWindows<Long, ?, Long> counts = TimeWindows.tumbling(Duration.ofMinutes(5), Long::longValue,
+                Collectors.counting(), windows::add);
+
+        LongStream.range(0, 60).map(minute -> minute * MINUTE).forEach(timestamp -> {
+            counts.accept(timestamp);
+            assertThat(counts.getOpenWindows()).isEqualTo(1);
+        });
+        counts.flush();
+
+        assertThat(windows).hasSize(12);
+        assertThat(windows).allMatch(window -> window.getResult() == 5);
+        assertThat(windows.get(1).getStart()).isEqualTo(Instant.ofEpochMilli(5 * MINUTE));
+        assertThat(windows.get(1).getEnd()).isEqualTo(Instant.ofEpochMilli(10 * MINUTE));
+    }
+
+    @Test
+    void slidingWindowsOverlap() {
+        List<TimeWindows.Window<Long>> windows = new ArrayList<>();
+        TimeWindows<Long, ?, Long> sums = TimeWindows.sliding(Duration.ofMinutes(1), Duration.ofSeconds(10), Long::longValue,
+                Collectors.summingLong(timestamp -> 1L), windows::add);
+
+        LongStream.range(0, 120).map(second -> second * 1000).boxed().forEach(sums);
+
+        // the windows starting -50s to 50s have ended by the last event at 119s
+        assertThat(windows).hasSize(11);
+        assertThat(windows.get(0).getStart()).isEqualTo(Instant.ofEpochMilli(-50_000));
+        assertThat(windows.get(0).getResult()).isEqualTo(10);
+        assertThat(windows.get(10).getResult()).isEqualTo(60);
+        assertThat(sums.getOpenWindows()).isEqualTo(6);
+    }
+
+    @Test
+    void outOfOrderEventsWithinTheLatenessAreCounted() {
+        List<TimeWindows.Window<Long>> windows = new ArrayList<>();
+        TimeWindows<Long, ?, Long> counts = TimeWindows.tumbling(Duration.ofMinutes(1), Long::longValue,
+                Collectors.counting(), windows::add)
+                .withAllowedLateness(Duration.ofSeconds(30));
+
+        counts.accept(10_000L);
+        counts.accept(70_000L);
+        counts.accept(50_000L);
+        counts.accept(100_000L);
+        counts.accept(55_000L);
+        counts.flush();
+
+        assertThat(counts.getLateEvents()).isEqualTo(1);
+        assertThat(windows).extracting(TimeWindows.Window::getResult).containsExactly(2L, 2L);
+    }
+
+    @Test
+    void windowsCanBeFedFromALiveQueue() {
+        IterableBlockingQueue<Long> queue = new IterableBlockingQueue<>();
+        List<TimeWindows.Window<Long>> windows = new ArrayList<>();
+        TimeWindows<Long, ?, Long> counts = TimeWindows.tumbling(Duration.ofMinutes(1), Long::longValue,
+                Collectors.counting(), windows::add);
+        CompletableFuture.runAsync(() -> {
+            LongStream.range(0, 300).map(second -> second * 1000).forEach(queue::add);
+            queue.done();
+        });
+
+        queue.forEach(counts);
+        counts.flush();
+
+        assertThat(windows).extracting(TimeWindows.Window::getResult).containsExactly(60L, 60L, 60L, 60L, 60L);
+    }
+
+    @Test
+    void eventsBetweenHoppingWindowsAreDroppedButNotLate() {
+        List<TimeWindows.Window<Long>> windows = new ArrayList<>();
+        TimeWindows<Long, ?, Long> counts = TimeWindows.sliding(Duration.ofMinutes(1), Duration.ofMinutes(2), Long::longValue,
+                Collectors.counting(), windows::add);
+
+        LongStream.range(0, 6).map(minute -> minute * MINUTE + 1).boxed().forEach(counts);
+        counts.flush();
+
+        assertThat(counts.getLateEvents()).isZero();
+        assertThat(windows).extracting(TimeWindows.Window::getResult).containsExactly(1L, 1L, 1L);
+    }
+
+    @Test
+    void eventsAfterAFlushAreLateInsteadOfReopeningWindows() {
+        List<TimeWindows.Window<Long>> windows = new ArrayList<>();
+        TimeWindows<Long, ?, Long> counts = TimeWindows.tumbling(Duration.ofMinutes(1), Long::longValue,
+                Collectors.counting(), windows::add);
+
+        counts.accept(10_000L);
+        counts.flush();
+        counts.accept(20_000L);
+        counts.accept(70_000L);
+        counts.flush();
+
+        assertThat(windows).hasSize(1);
+        assertThat(counts.getOpenWindows()).isZero();
+        assertThat(counts.getLateEvents()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,124 @@
+package com.wd.performance;
+
+import com.wd.util.ThreadUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class OrderedPipelineTest {
+
+    @Test
+    void resultsReachTheSinkInSourceOrder() {
+        Set<String> transformThreads = ConcurrentHashMap.newKeySet();
+        Function<List<Integer>, List<Integer>> slowSquare = batch -> {
+            transformThreads.add(Thread.currentThread().getName());
+            ThreadUtils.sleep(ThreadLocalRandom.current().nextInt(1, 15));
+            return batch.stream().map(i -> i * i).collect(Collectors.toList());
+        };
+        List<Integer> delivered = new ArrayList<>();
+
+        OrderedPipeline<Integer, List<Integer>> pipeline = new OrderedPipeline<>(slowSquare, delivered::addAll,
+                new QueueConsumerConfig.Builder().withBatchSize(10).withParallelism(4).withQueueCapacity(50).build());
+        ConsumeResult result = pipeline.process(IntStream.rangeClosed(1, 1000).boxed());
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.getConsumed()).isEqualTo(1000);
+        assertThat(delivered).isEqualTo(IntStream.rangeClosed(1, 1000).map(i -> i * i).boxed().collect(Collectors.toList()));
+        assertThat(transformThreads.size()).isGreaterThan(1);
+    }
+
+    @Test
+    void aFailingTransformStopsThePipeline() {
+        Function<List<Integer>, Integer> failOnFifth = batch -> {
+            if (batch.contains(50)) {
+                throw new IllegalArgumentException("bad record");
+            }
+            return batch.size();
+        };
+        List<Integer> delivered = new ArrayList<>();
+
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>(failOnFifth, delivered::add,
+                new QueueConsumerConfig.Builder().withBatchSize(10).withParallelism(3).withQueueCapacity(100).build(), 2);
+        ConsumeResult result = pipeline.process(IntStream.iterate(1, i -> i + 1).boxed());
+
+        assertThat(result.isCancelled()).isTrue();
+        assertThat(result.getConsumerFailure()).containsInstanceOf(IllegalArgumentException.class);
+        assertThat(delivered.size()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void aFailingSinkStopsThePipelineAndIsChargedToTheDeliveredBatch() {
+        List<Integer> delivered = new ArrayList<>();
+        Consumer<Integer> failOnThird = size -> {
+            if (delivered.size() == 2) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            delivered.add(size);
+        };
+
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>(List::size, failOnThird,
+                new QueueConsumerConfig.Builder().withBatchSize(10).withParallelism(3).withQueueCapacity(100).build(), 2);
+        ConsumeResult result = pipeline.process(IntStream.iterate(1, i -> i + 1).boxed());
+
+        assertThat(result.isCancelled()).isTrue();
+        assertThat(result.getConsumerFailure()).containsInstanceOf(IllegalStateException.class);
+        assertThat(result.getBatches()).isEqualTo(2);
+        assertThat(result.getFailedBatches()).isEqualTo(1);
+        assertThat(result.getFailedElements()).isEqualTo(10);
+        assertThat(delivered).containsExactly(10, 10);
+    }
+
+    @Test
+    void aWorkerDyingWithAnErrorWakesTheWorkersWaitingOnTheReorderWindow() {
+        AtomicReference<Thread> caller = new AtomicReference<>();
+        AtomicBoolean died = new AtomicBoolean();
+        // a pool worker dies, leaving its batch undelivered, so the calling thread ends up parked on the window
+        Function<List<Integer>, Integer> transform = batch -> {
+            if (Thread.currentThread() == caller.get()) {
+                ThreadUtils.sleep(1);
+            } else if (died.compareAndSet(false, true)) {
+                throw new AssertionError("worker died");
+            }
+            return batch.get(0);
+        };
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>(transform, result -> {},
+                new QueueConsumerConfig.Builder().withBatchSize(1).withParallelism(2).build(), 1);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            caller.set(Thread.currentThread());
+            assertThatThrownBy(() -> pipeline.process(IntStream.range(0, 100).boxed()))
+                    .hasRootCauseInstanceOf(AssertionError.class);
+        });
+    }
+
+    @Test
+    void consumedCountsWhatReachedTheSink() {
+        Consumer<Integer> sink = result -> {
+            if (result == 3) {
+                throw new IllegalStateException("sink is down");
+            }
+        };
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>(batch -> batch.get(0), sink,
+                new QueueConsumerConfig.Builder().withBatchSize(1).build());
+
+        ConsumeResult result = pipeline.process(IntStream.range(0, 10).boxed());
+
+        assertThat(result.getConsumed()).isEqualTo(3);
+        assertThat(result.getBatches()).isEqualTo(3);
+    }
+}
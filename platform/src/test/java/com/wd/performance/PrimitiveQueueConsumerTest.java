@@ -0,0 +1,120 @@
+package com.wd.performance;
+
+import com.wd.util.ThreadUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrimitiveQueueConsumerTest {
+
+    @Test
+    void intsAreConsumedInReusedBatches() {
+        AtomicLong sum = new AtomicLong();
+        ArrayBatchConsumer<int[]> consumer = (batch, length) -> {
+            long batchSum = 0;
+            for (int i = 0; i < length; i++) {
+                batchSum += batch[i];
+            }
+            sum.addAndGet(batchSum);
+        };
+
+        IntQueueConsumer queueConsumer = new IntQueueConsumer(consumer, new QueueConsumerConfig.Builder()
+                .withBatchSize(100)
+                .withParallelism(4)
+                .withQueueCapacity(500).build());
+        ConsumeResult result = queueConsumer.queueAndConsume(IntStream.rangeClosed(1, 100_000));
+
+        assertThat(result.getConsumedPerWorker()).hasSize(4);
+        assertThat(result.getConsumed()).isEqualTo(100_000);
+        assertThat(sum.get()).isEqualTo(100_000L * 100_001 / 2);
+    }
+
+    @Test
+    void longsAndDoublesUseTheSameRing() {
+        AtomicLong longs = new AtomicLong();
+        DoubleAdder doubles = new DoubleAdder();
+
+        new LongQueueConsumer((batch, length) -> longs.addAndGet(length)).queueAndConsume(LongStream.range(0, 1234));
+        ConsumeResult result = new DoubleQueueConsumer((batch, length) -> {
+            for (int i = 0; i < length; i++) {
+                doubles.add(batch[i]);
+            }
+        }).queueAndConsume(DoubleStream.generate(() -> 0.5).limit(1000));
+
+        assertThat(longs.get()).isEqualTo(1234);
+        assertThat(result.getBatches()).isEqualTo(10);
+        assertThat(doubles.sum()).isEqualTo(500.0);
+    }
+
+    @Test
+    void failingBatchCancelsAnEndlessProducer() {
+        ArrayBatchConsumer<int[]> consumer = (batch, length) -> {
+            throw new IllegalArgumentException("bad record");
+        };
+
+        ConsumeResult result = new IntQueueConsumer(consumer, new QueueConsumerConfig.Builder()
+                .withBatchSize(10)
+                .withQueueCapacity(100).build())
+                .queueAndConsume(IntStream.iterate(1, i -> i + 1));
+
+        assertThat(result.isCancelled()).isTrue();
+        assertThat(result.getConsumed()).isEqualTo(0);
+        assertThat(result.getConsumerFailure()).containsInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void failingBatchesAreRetriedThenDeadLettered() {
+        AtomicInteger attempts = new AtomicInteger();
+        ArrayBatchConsumer<int[]> consumer = (batch, length) -> {
+            if (batch[0] == 11) {
+                attempts.incrementAndGet();
+                throw new IllegalArgumentException("bad record");
+            }
+        };
+        List<Object> deadLetters = new CopyOnWriteArrayList<>();
+        AtomicInteger batchEvents = new AtomicInteger();
+
+        ConsumeResult result = new IntQueueConsumer(consumer, new QueueConsumerConfig.Builder()
+                .withBatchSize(10)
+                .withLinger(Duration.ofMillis(50))
+                .withMetrics(new ConsumerMetrics() {
+                    @Override
+                    public void onBatch(int size, long nanos, boolean succeeded) {
+                        batchEvents.incrementAndGet();
+                    }
+                }).build(),
+                FailurePolicy.<Integer>retry(3, Duration.ofMillis(1)).thenDeadLetter(deadLetters::addAll))
+                .queueAndConsume(IntStream.rangeClosed(1, 30));
+
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(result.getRetries()).isEqualTo(2);
+        assertThat(result.getConsumed()).isEqualTo(20);
+        assertThat(result.isCancelled()).isFalse();
+        assertThat(deadLetters).containsExactly(11, 12, 13, 14, 15, 16, 17, 18, 19, 20);
+        assertThat(batchEvents.get()).isEqualTo(3);
+    }
+
+    @Test
+    void lingerFlushesPartialBatchesOfASlowSource() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        ConsumeResult result = new IntQueueConsumer((batch, length) -> batchSizes.add(length), new QueueConsumerConfig.Builder()
+                .withBatchSize(100)
+                .withLinger(Duration.ofMillis(50)).build())
+                .queueAndConsume(IntStream.range(0, 10).peek(i -> ThreadUtils.sleep(30)));
+
+        assertThat(result.getConsumed()).isEqualTo(10);
+        assertThat(batchSizes.size()).isGreaterThan(1);
+        assertThat(batchSizes).allMatch(size -> size < 10);
+    }
+}
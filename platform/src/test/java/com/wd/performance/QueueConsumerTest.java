@@ -5,11 +5,24 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 class QueueConsumerTest {
 
     private static Logger logger = LogManager.getLogger(QueueConsumerTest.class);
@@ -25,4 +38,218 @@ class QueueConsumerTest {
         QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(consumer);
         queueConsumer.queueAndConsume(sourceStream);
     }
-}
\ No newline at end of file
+
+    @Test
+    void queueAndConsumeInParallel() {
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        Consumer<List<Integer>> consumer = list -> {
+            ThreadUtils.sleep(20);
+            consumed.addAll(list);
+        };
+        Stream<Integer> sourceStream = IntStream.rangeClosed(1,1000).boxed();
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(consumer, 50);
+        ConsumeResult result = queueConsumer.queueAndConsume(sourceStream, 4);
+
+        assertThat(result.getConsumedPerWorker()).hasSize(4);
+        assertThat(result.getConsumed()).isEqualTo(1000);
+        assertThat(result.getBatches()).isBetween(20L, 23L);
+        assertThat(consumed).hasSize(1000);
+    }
+
+    @Test
+    void queueAndConsumeOnASuppliedExecutor() {
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        Consumer<List<Integer>> consumer = consumed::addAll;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(consumer, 50);
+        ConsumeResult result = queueConsumer.queueAndConsume(IntStream.rangeClosed(1,1000).boxed(), 3, executor);
+
+        assertThat(result.getConsumed()).isEqualTo(1000);
+        assertThat(consumed).hasSize(1000);
+        assertThat(executor.isShutdown()).isFalse();
+        executor.shutdown();
+    }
+
+    @Test
+    void queueAndConsumeOnLightweightThreads() {
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        Consumer<List<Integer>> consumer = consumed::addAll;
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(consumer, 50);
+        ConsumeResult result = queueConsumer.queueAndConsume(IntStream.rangeClosed(1,1000).boxed(), 4, ThreadUtils.lightweightExecutor());
+
+        assertThat(result.getConsumedPerWorker()).hasSize(4);
+        assertThat(consumed).hasSize(1000);
+    }
+
+    @Test
+    void queueAndConsumeFlushesPartialBatchesAfterLinger() {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        Consumer<List<Integer>> consumer = batches::add;
+        Stream<Integer> trickle = IntStream.rangeClosed(1,10).boxed().peek(i -> ThreadUtils.sleep(30));
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(consumer, 100, Duration.ofMillis(50));
+        ConsumeResult result = queueConsumer.queueAndConsume(trickle);
+
+        assertThat(result.getConsumed()).isEqualTo(10);
+        assertThat(batches.size()).isGreaterThan(1);
+        assertThat(batches).allMatch(batch -> batch.size() < 10);
+    }
+
+    @Test
+    void differentlyTunedConsumersRunSideBySide() throws Exception {
+        List<Integer> smallBatchSizes = new CopyOnWriteArrayList<>();
+        List<Integer> largeBatchSizes = new CopyOnWriteArrayList<>();
+        QueueConsumer<Integer> small = new QueueConsumer<>(batch -> smallBatchSizes.add(batch.size()),
+                new QueueConsumerConfig.Builder().withBatchSize(10).withQueueCapacity(20).build());
+        QueueConsumer<Integer> large = new QueueConsumer<>(batch -> largeBatchSizes.add(batch.size()),
+                new QueueConsumerConfig.Builder().withBatchSize(250).withParallelism(2).build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<ConsumeResult> smallResult = executor.submit(() -> small.queueAndConsume(IntStream.rangeClosed(1,1000).boxed()));
+        Future<ConsumeResult> largeResult = executor.submit(() -> large.queueAndConsume(IntStream.rangeClosed(1,1000).boxed()));
+
+        assertThat(smallResult.get().getConsumed()).isEqualTo(1000);
+        assertThat(largeResult.get().getConsumedPerWorker()).hasSize(2);
+        assertThat(smallBatchSizes).allMatch(size -> size <= 10);
+        assertThat(largeBatchSizes).anyMatch(size -> size > 10);
+        executor.shutdown();
+    }
+
+    @Test
+    void failingBatchesAreRetriedWithBackoff() {
+        AtomicInteger calls = new AtomicInteger();
+        Consumer<List<Integer>> flakyConsumer = batch -> {
+            if (calls.incrementAndGet() % 3 != 0) {
+                throw new IllegalStateException("db unavailable");
+            }
+        };
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(flakyConsumer, QueueConsumerConfig.DEFAULT,
+                FailurePolicy.retry(3, Duration.ofMillis(1)));
+        ConsumeResult result = queueConsumer.queueAndConsume(IntStream.rangeClosed(1,300).boxed());
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.getConsumed()).isEqualTo(300);
+        assertThat(result.getRetries()).isEqualTo(6);
+    }
+
+    @Test
+    void batchesThatExhaustRetriesGoToTheDeadLetterConsumer() {
+        List<Integer> deadLetters = new CopyOnWriteArrayList<>();
+        Consumer<List<Integer>> consumer = batch -> {
+            if (batch.contains(150)) {
+                throw new IllegalArgumentException("bad record");
+            }
+        };
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(consumer, QueueConsumerConfig.DEFAULT,
+                FailurePolicy.<Integer>retry(2, Duration.ZERO).thenDeadLetter(deadLetters::addAll));
+        ConsumeResult result = queueConsumer.queueAndConsume(IntStream.rangeClosed(1,300).boxed());
+
+        assertThat(result.isSuccessful()).isFalse();
+        assertThat(result.isCancelled()).isFalse();
+        assertThat(result.getConsumed()).isEqualTo(200);
+        assertThat(result.getDeadLettered()).isEqualTo(100);
+        assertThat(result.getFailedBatches()).isEqualTo(1);
+        assertThat(result.getConsumerFailure()).containsInstanceOf(IllegalArgumentException.class);
+        assertThat(deadLetters).contains(150);
+    }
+
+    @Test
+    void failFastCancelsAnEndlessProducer() {
+        Consumer<List<Integer>> consumer = batch -> {
+            throw new IllegalArgumentException("bad record");
+        };
+        Stream<Integer> endless = Stream.iterate(1, i -> i + 1);
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(consumer, 10, 100);
+        ConsumeResult result = queueConsumer.queueAndConsume(endless, 2);
+
+        assertThat(result.isCancelled()).isTrue();
+        assertThat(result.getConsumed()).isEqualTo(0);
+        assertThat(result.getFailedBatches()).isBetween(1L, 2L);
+    }
+
+    @Test
+    void producerFailuresAreReported() {
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        Stream<Integer> failing = IntStream.rangeClosed(1,10).boxed().peek(i -> {
+            if (i == 5) {
+                throw new IllegalStateException("feed truncated");
+            }
+        });
+
+        ConsumeResult result = new QueueConsumer<Integer>(consumed::addAll).queueAndConsume(failing);
+
+        assertThat(result.isSuccessful()).isFalse();
+        assertThat(result.getProducerFailure()).containsInstanceOf(IllegalStateException.class);
+        assertThat(consumed).containsExactlyInAnyOrder(1, 2, 3, 4);
+    }
+
+    @Test
+    void queueAndBatchActivityIsReportedToTheMetricsListener() {
+        ConsumerStats stats = new ConsumerStats();
+        Consumer<List<Integer>> slowConsumer = batch -> ThreadUtils.sleep(5);
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(slowConsumer, new QueueConsumerConfig.Builder()
+                .withBatchSize(50)
+                .withQueueCapacity(100)
+                .withMetrics(stats).build());
+        queueConsumer.queueAndConsume(IntStream.rangeClosed(1,1000).boxed());
+
+        assertThat(stats.getEnqueued()).isEqualTo(1000);
+        assertThat(stats.getDequeued()).isEqualTo(1000);
+        assertThat(stats.getDepth()).isEqualTo(0);
+        assertThat(stats.getBatches()).isEqualTo(20);
+        assertThat(stats.getProducerBlockedNanos()).isGreaterThan(0);
+        assertThat(stats.getBatchLatencyPercentile(0.99)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(stats.getEnqueueRate()).isGreaterThan(0);
+    }
+
+    @Test
+    void queueAndConsumeAsyncReturnsBeforeConsumptionFinishes() {
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer<List<Integer>> blockedConsumer = batch -> awaitQuietly(release);
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(blockedConsumer, 100);
+        ConsumeHandle handle = queueConsumer.queueAndConsumeAsync(IntStream.rangeClosed(1,1000).boxed());
+
+        assertThat(handle.await(Duration.ofMillis(50))).isEmpty();
+        assertThat(handle.isDone()).isFalse();
+
+        release.countDown();
+        ConsumeResult result = handle.future().join();
+        assertThat(result.getConsumed()).isEqualTo(1000);
+        assertThat(handle.getProduced()).isEqualTo(1000);
+        assertThat(handle.getConsumed()).isEqualTo(1000);
+        assertThat(handle.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    void cancellingAnAsyncRunStopsTheProducerAndDiscardsTheQueue() {
+        Consumer<List<Integer>> slowConsumer = batch -> ThreadUtils.sleep(10);
+        Stream<Integer> endless = Stream.iterate(1, i -> i + 1);
+
+        QueueConsumer<Integer> queueConsumer = new QueueConsumer<>(slowConsumer, 10, 1000);
+        ConsumeHandle handle = queueConsumer.queueAndConsumeAsync(endless);
+        ThreadUtils.sleep(50);
+        handle.cancel();
+
+        Optional<ConsumeResult> result = handle.await(Duration.ofSeconds(5));
+        assertThat(result).isPresent();
+        assertThat(result.get().isCancelled()).isTrue();
+        assertThat(handle.getQueueDepth()).isEqualTo(0);
+        assertThat(handle.getProduced()).isLessThan(2000);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.wd.performance;
+
+import com.wd.util.ThreadUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingPipelineTest {
+
+    static class Event {
+        long value;
+        long doubled;
+    }
+
+    @Test
+    void laterStagesSeeTheWorkOfEarlierOnes() {
+        AtomicLong journalled = new AtomicLong();
+        AtomicLong checked = new AtomicLong();
+        AtomicLong mismatches = new AtomicLong();
+        RingPipeline<Event> pipeline = new RingPipeline.Builder<>(1024, Event::new)
+                .handleWith((event, sequence, endOfBatch) -> event.doubled = event.value * 2,
+                        (event, sequence, endOfBatch) -> journalled.addAndGet(event.value))
+                .handleWith((event, sequence, endOfBatch) -> {
+                    if (event.doubled != event.value * 2) {
+                        mismatches.incrementAndGet();
+                    }
+                    checked.addAndGet(event.doubled);
+                })
+                .build();
+        pipeline.start();
+
+        CompletableFuture<Void> otherProducer = CompletableFuture.runAsync(() -> publishRange(pipeline, 50_001, 100_000));
+        publishRange(pipeline, 1, 50_000);
+        otherProducer.join();
+        pipeline.shutdown();
+
+        long expected = 100_000L * 100_001 / 2;
+        assertThat(journalled.get()).isEqualTo(expected);
+        assertThat(checked.get()).isEqualTo(2 * expected);
+        assertThat(mismatches.get()).isEqualTo(0);
+    }
+
+    @Test
+    void theFirstStageWaitsWithItsStrategyForAClaimedSlotToBePublished() {
+        AtomicLong waits = new AtomicLong();
+        WaitStrategy parking = WaitStrategy.parking(Duration.ofMillis(1));
+        AtomicLong handled = new AtomicLong();
+        RingPipeline<Event> pipeline = new RingPipeline.Builder<>(64, Event::new)
+                .withWaitStrategy((sequence, available, halted) -> {
+                    waits.incrementAndGet();
+                    return parking.waitFor(sequence, available, halted);
+                })
+                .handleWith((event, sequence, endOfBatch) -> handled.addAndGet(event.value))
+                .build();
+        RingBuffer<Event> ring = pipeline.getRingBuffer();
+        long claimed = ring.next();
+        pipeline.start();
+
+        ThreadUtils.sleep(50);
+        assertThat(waits.get()).isEqualTo(1);
+
+        ring.get(claimed).value = 7;
+        ring.publish(claimed);
+        pipeline.shutdown();
+        assertThat(handled.get()).isEqualTo(7);
+    }
+
+    @Test
+    void everyWaitStrategyDeliversEveryEvent() {
+        for (WaitStrategy waitStrategy : new WaitStrategy[]{WaitStrategy.busySpin(), WaitStrategy.yielding(),
+                WaitStrategy.parking(Duration.ofNanos(100))}) {
+            AtomicLong count = new AtomicLong();
+            RingPipeline<Event> pipeline = new RingPipeline.Builder<>(64, Event::new)
+                    .withWaitStrategy(waitStrategy)
+                    .handleWith((event, sequence, endOfBatch) -> count.incrementAndGet())
+                    .build();
+            pipeline.start();
+            publishRange(pipeline, 1, 10_000);
+            pipeline.shutdown();
+
+            assertThat(count.get()).isEqualTo(10_000);
+        }
+    }
+
+    @Test
+    void failingEventsAreSkippedAndCounted() {
+        AtomicLong handled = new AtomicLong();
+        RingPipeline<Event> pipeline = new RingPipeline.Builder<>(16, Event::new)
+                .handleWith((event, sequence, endOfBatch) -> {
+                    if (event.value % 10 == 0) {
+                        throw new IllegalArgumentException("bad event");
+                    }
+                })
+                .handleWith((event, sequence, endOfBatch) -> handled.incrementAndGet())
+                .build();
+        pipeline.start();
+        publishRange(pipeline, 1, 100);
+        pipeline.shutdown();
+
+        assertThat(pipeline.getHandlerFailures()).isEqualTo(10);
+        assertThat(handled.get()).isEqualTo(100);
+    }
+
+    @Test
+    void ringSizeMustBeAPowerOfTwo() {
+        assertThatThrownBy(() -> new RingBuffer<>(100, Event::new)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void publishRange(RingPipeline<Event> pipeline, long from, long to) {
+        for (long value = from; value <= to; value++) {
+            pipeline.publish((event, arg) -> event.value = arg, value);
+        }
+    }
+}
@@ -1,15 +1,37 @@
 package com.wds.util;
 
 import java.util.Arrays;
+import java.util.List;
 
 public class ArrayUtils {
 
+    private static final LruCache<List<String>, DictionaryMatcher> MATCHERS = new LruCache<>(64);
+
     public static <T> boolean arrayHasMatch(T[] array, T match) {
         return Arrays.stream(array).anyMatch(match::equals);
     }
 
+    /**
+     * return true if s contains any of the values. the values are compiled into a DictionaryMatcher that is
+     * cached by content, so repeated calls with the same values scan s once - but every call still copies and
+     * hashes the values to find it. on a hot path use strContainsAny(String, DictionaryMatcher)
+     * @param s
+     * @param values
+     * @return
+     */
     public static boolean strContainsAny(String s, String[] values) {
-        return Arrays.stream(values).parallel().anyMatch(s::contains);
+        return MATCHERS.get(List.of(values), DictionaryMatcher::of).containsAny(s);
+    }
+
+    /**
+     * return true if s contains any value of a matcher compiled once with DictionaryMatcher.of,
+     * the hot path version of strContainsAny(String, String[])
+     * @param s
+     * @param values
+     * @return
+     */
+    public static boolean strContainsAny(String s, DictionaryMatcher values) {
+        return values.containsAny(s);
     }
 
 }
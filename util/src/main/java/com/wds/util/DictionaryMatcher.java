@@ -0,0 +1,184 @@
+package com.wds.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Finds which of a fixed list of values occur in a string in one pass over the string, whatever the number of values.
+ * <p>
+ * The values are compiled once into an Aho-Corasick automaton: a trie of the values whose nodes also link to the
+ * longest suffix that is another trie path, so scanning never backs up. Build a matcher once per value list and reuse
+ * it - it is immutable and thread safe. Matching is case sensitive, like String.contains.
+ */
+public final class DictionaryMatcher {
+
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    private final List<String> values;
+    // per node: sorted transition chars and their target nodes
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    // per node: indexes of the values ending here, own and via fail links, in ascending order
+    private final int[][] outputs;
+
+    private DictionaryMatcher(List<String> values) {
+        this.values = values;
+
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+        for (int v = 0; v < values.size(); v++) {
+            int node = 0;
+            for (char c : values.get(v).toCharArray()) {
+                Integer next = trie.get(node).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(node).put(c, next);
+                    trie.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                node = next;
+            }
+            ends.get(node).add(v);
+        }
+
+        int nodes = trie.size();
+        keys = new char[nodes][];
+        targets = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            Map<Character, Integer> edges = trie.get(node);
+            keys[node] = new char[edges.size()];
+            targets[node] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                keys[node][i] = edge.getKey();
+                targets[node][i++] = edge.getValue();
+            }
+        }
+
+        // breadth first, so a node's fail target is final before the node's children need it
+        fail = new int[nodes];
+        outputs = new int[nodes][];
+        outputs[0] = toSortedArray(ends.get(0), NO_OUTPUTS);
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            outputs[node] = toSortedArray(ends.get(node), outputs[fail[node]]);
+            for (int i = 0; i < keys[node].length; i++) {
+                int child = targets[node][i];
+                fail[child] = node == 0 ? 0 : step(fail[node], keys[node][i]);
+                queue.add(child);
+            }
+        }
+    }
+
+    public static DictionaryMatcher of(Collection<String> values) {
+        return new DictionaryMatcher(List.copyOf(values));
+    }
+
+    public static DictionaryMatcher of(String... values) {
+        return of(Arrays.asList(values));
+    }
+
+    /**
+     * @param s
+     * @return true if s contains any of the values
+     */
+    public boolean containsAny(String s) {
+        if (outputs[0].length > 0) {
+            return true;
+        }
+        int node = 0;
+        for (int i = 0; i < s.length(); i++) {
+            node = step(node, s.charAt(i));
+            if (outputs[node].length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param s
+     * @return the value contained in s that comes first in the value list, as a scan of the list would find it
+     */
+    public Optional<String> findFirst(String s) {
+        int first = outputs[0].length > 0 ? outputs[0][0] : Integer.MAX_VALUE;
+        int node = 0;
+        for (int i = 0; i < s.length() && first > 0; i++) {
+            node = step(node, s.charAt(i));
+            if (outputs[node].length > 0) {
+                first = Math.min(first, outputs[node][0]);
+            }
+        }
+        return first == Integer.MAX_VALUE ? Optional.empty() : Optional.of(values.get(first));
+    }
+
+    /**
+     * @param s
+     * @return every value contained in s, in value list order
+     */
+    public List<String> findAll(String s) {
+        boolean[] found = new boolean[values.size()];
+        for (int v : outputs[0]) {
+            found[v] = true;
+        }
+        int node = 0;
+        for (int i = 0; i < s.length(); i++) {
+            node = step(node, s.charAt(i));
+            for (int v : outputs[node]) {
+                found[v] = true;
+            }
+        }
+        List<String> matches = new ArrayList<>();
+        for (int v = 0; v < found.length; v++) {
+            if (found[v]) {
+                matches.add(values.get(v));
+            }
+        }
+        return matches;
+    }
+
+    private int step(int node, char c) {
+        while (true) {
+            int i = Arrays.binarySearch(keys[node], c);
+            if (i >= 0) {
+                return targets[node][i];
+            }
+            if (node == 0) {
+                return 0;
+            }
+            node = fail[node];
+        }
+    }
+
+    private static int[] toSortedArray(List<Integer> own, int[] inherited) {
+        if (own.isEmpty()) {
+            return inherited;
+        }
+        int[] merged = new int[own.size() + inherited.length];
+        for (int i = 0; i < own.size(); i++) {
+            merged[i] = own.get(i);
+        }
+        System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryMatcher{" + values.size() + " values}";
+    }
+}
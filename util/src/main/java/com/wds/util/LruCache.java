@@ -0,0 +1,100 @@
+package com.wds.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * small thread safe cache that evicts the least recently used entry once it holds maxSize entries.
+ * meant for values that are expensive to compile from a key that keeps coming back, like a matcher for a word list
+ * <p>
+ * a hit takes no lock, so parallel callers don't queue up behind each other; only a miss locks to insert and evict.
+ * recency is counted in inserts: entries used since the last insert count as equally recent
+ * @param <K>
+ * @param <V>
+ */
+public class LruCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final UnaryOperator<K> keyCopier;
+    // moves on at every insert, so an entry hit again and again between two inserts is only written once
+    private final AtomicLong clock = new AtomicLong();
+
+    public LruCache(int maxSize) {
+        this(maxSize, UnaryOperator.identity());
+    }
+
+    /**
+     * @param maxSize
+     * @param keyCopier - copies a key before it is stored, so callers may go on changing a mutable key like a list
+     */
+    public LruCache(int maxSize, UnaryOperator<K> keyCopier) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1, was " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.keyCopier = keyCopier;
+    }
+
+    /**
+     * return the cached value for key, computing it outside the lock when absent
+     * @param key
+     * @param compute
+     * @return
+     */
+    public V get(K key, Function<? super K, ? extends V> compute) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return insert(key, compute.apply(key)).value;
+        }
+        long now = clock.get();
+        if (entry.lastUsed != now) {
+            entry.lastUsed = now;
+        }
+        return entry.value;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private synchronized Entry<V> insert(K key, V value) {
+        Entry<V> existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        K storedKey = keyCopier.apply(key);
+        Entry<V> entry = new Entry<>(value, clock.getAndIncrement());
+        entries.put(storedKey, entry);
+        if (entries.size() > maxSize) {
+            evictLeastRecentlyUsed(storedKey);
+        }
+        return entry;
+    }
+
+    private void evictLeastRecentlyUsed(K inserted) {
+        K eldest = null;
+        long eldestUse = Long.MAX_VALUE;
+        for (Map.Entry<K, Entry<V>> candidate : entries.entrySet()) {
+            if (candidate.getValue().lastUsed < eldestUse && !candidate.getKey().equals(inserted)) {
+                eldest = candidate.getKey();
+                eldestUse = candidate.getValue().lastUsed;
+            }
+        }
+        entries.remove(eldest);
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+        volatile long lastUsed;
+
+        Entry(V value, long lastUsed) {
+            this.value = value;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -19,4 +19,11 @@ class ArrayUtilsTest {
         assertTrue(ArrayUtils.strContainsAny("george harrison", array));
         assertFalse(ArrayUtils.strContainsAny("harrison", array));
     }
-}
\ No newline at end of file
+
+    @Test
+    void strContainsAnyPrecompiled() {
+        DictionaryMatcher matcher = DictionaryMatcher.of("george", "michael");
+        assertTrue(ArrayUtils.strContainsAny("george harrison", matcher));
+        assertFalse(ArrayUtils.strContainsAny("harrison", matcher));
+    }
+}
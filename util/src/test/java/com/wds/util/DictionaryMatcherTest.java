@@ -0,0 +1,42 @@
+package com.wds.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DictionaryMatcherTest {
+
+    @Test
+    void containsAny() {
+        DictionaryMatcher matcher = DictionaryMatcher.of("he", "she", "his", "hers");
+        assertTrue(matcher.containsAny("ushers"));
+        assertTrue(matcher.containsAny("this"));
+        assertFalse(matcher.containsAny("hopes"));
+        assertFalse(matcher.containsAny(""));
+    }
+
+    @Test
+    void findFirstKeepsValueListOrder() {
+        DictionaryMatcher matcher = DictionaryMatcher.of("hers", "she", "he");
+        assertEquals(Optional.of("hers"), matcher.findFirst("ushers"));
+        assertEquals(Optional.of("he"), matcher.findFirst("the end"));
+        assertEquals(Optional.empty(), matcher.findFirst("nothing"));
+    }
+
+    @Test
+    void findAllFollowsFailLinks() {
+        DictionaryMatcher matcher = DictionaryMatcher.of("he", "she", "his", "hers", "abcd", "bc");
+        assertEquals(List.of("he", "she", "hers"), matcher.findAll("ushers"));
+        assertEquals(List.of("bc"), matcher.findAll("abce"));
+    }
+
+    @Test
+    void emptyValueMatchesEverything() {
+        DictionaryMatcher matcher = DictionaryMatcher.of("x", "");
+        assertTrue(matcher.containsAny("abc"));
+        assertEquals(Optional.of(""), matcher.findFirst("abc"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.wds.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void cacheEvictsLeastRecentlyUsed() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.get("a", String::length);
+        cache.get("bb", String::length);
+        cache.get("a", k -> fail("a should still be cached"));
+        // bb is now the least recently used entry
+        cache.get("ccc", String::length);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.get("a", k -> fail("a should have been kept")));
+        assertEquals(42, cache.get("bb", k -> 42));
+    }
+
+    @Test
+    void keysAreCopiedBeforeTheyAreStored() {
+        LruCache<List<String>, Integer> cache = new LruCache<>(2, List::copyOf);
+        List<String> key = new ArrayList<>(List.of("a", "b"));
+        cache.get(key, List::size);
+        key.add("c");
+        assertEquals(2, cache.get(List.of("a", "b"), k -> fail("the stored key should not have changed")));
+    }
+
+    @Test
+    void parallelHitsComputeEachValueOnce() {
+        LruCache<Integer, Integer> cache = new LruCache<>(8);
+        AtomicInteger computed = new AtomicInteger();
+        IntStream.range(0, 8).forEach(i -> cache.get(i, k -> computed.incrementAndGet()));
+
+        IntStream.range(0, 100_000).parallel().forEach(i -> cache.get(i % 8, k -> computed.incrementAndGet()));
+
+        assertEquals(8, computed.get());
+        assertEquals(8, cache.size());
+    }
+}